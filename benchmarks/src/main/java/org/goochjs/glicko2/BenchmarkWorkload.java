@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A seeded rating period used by the benchmarks: a population of players and the results between them,
+ * held as ids so that the same period can be turned into fresh Rating or columnar objects for each run.
+ * The population and the period's games come from a {@link WorkloadGenerator}, without rematches.
+ *
+ * @author Jeremy Gooch
+ */
+public class BenchmarkWorkload {
+
+	/**
+	 * How the results of the period are spread across the players.
+	 */
+	public enum Distribution {
+		/** every player is equally likely to take part in each result */
+		UNIFORM,
+		/** a player's chance of taking part follows a power law (Zipf, exponent 1) */
+		POWER_LAW
+	}
+
+	private static final long SEED = 20130101L;
+
+	private final RatingCalculator ratingSystem;
+	private final double[] ratings;
+	private final double[] deviations;
+	private final int[] player1;
+	private final int[] player2;
+	private final boolean[] draws;
+
+
+	/**
+	 * @param ratingSystem
+	 * @param players           size of the population
+	 * @param resultsPerPlayer  average number of results per player
+	 * @param distribution      how the results are spread across the players
+	 * @param drawRatio         proportion of results that are draws
+	 */
+	public BenchmarkWorkload(RatingCalculator ratingSystem, int players, int resultsPerPlayer, Distribution distribution, double drawRatio) {
+		this.ratingSystem = ratingSystem;
+		WorkloadGenerator generator = new WorkloadGenerator(SEED, players, 300, distribution == Distribution.POWER_LAW ? 1.0 : 0.0);
+		generator.setResultsPerPlayer(resultsPerPlayer);
+		generator.setDrawRate(drawRatio);
+		generator.setRematchRate(0.0);
+
+		// the players start from their hidden skill, with a spread of deviations
+		Random random = new Random(SEED);
+		ratings = new double[players];
+		deviations = new double[players];
+		for ( int i = 0; i < players; i++ ) {
+			ratings[i] = generator.getSkill(i);
+			deviations[i] = 50 + random.nextDouble() * 300;
+		}
+
+		final List<int[]> games = new ArrayList<int[]>();
+		generator.generatePeriod(0, new WorkloadGenerator.Games() {
+			@Override
+			public void game(int winner, int loser, boolean draw) {
+				games.add(new int[] { winner, loser, draw ? 1 : 0 });
+			}
+		});
+
+		player1 = new int[games.size()];
+		player2 = new int[games.size()];
+		draws = new boolean[games.size()];
+		for ( int i = 0; i < games.size(); i++ ) {
+			int[] game = games.get(i);
+			player1[i] = game[0];
+			player2[i] = game[1];
+			draws[i] = game[2] == 1;
+		}
+	}
+
+
+	public int getNumberOfPlayers() {
+		return ratings.length;
+	}
+
+	public int getNumberOfResults() {
+		return player1.length;
+	}
+
+
+	/**
+	 * @return a fresh population of Rating objects
+	 */
+	public List<Rating> createRatings() {
+		List<Rating> players = new ArrayList<Rating>(ratings.length);
+		for ( int i = 0; i < ratings.length; i++ ) {
+			players.add(new Rating("player" + i, ratingSystem, ratings[i], deviations[i], ratingSystem.getDefaultVolatility()));
+		}
+		return players;
+	}
+
+
+	/**
+	 * @param players  a population built by {@link #createRatings()}
+	 * @return the period's results between those players
+	 */
+	public RatingPeriodResults createResults(List<Rating> players) {
+		RatingPeriodResults results = new RatingPeriodResults();
+		for ( Rating player : players ) {
+			results.addParticipants(player);
+		}
+		for ( int i = 0; i < player1.length; i++ ) {
+			if ( draws[i] ) {
+				results.addDraw(players.get(player1[i]), players.get(player2[i]));
+			} else {
+				results.addResult(players.get(player1[i]), players.get(player2[i]));
+			}
+		}
+		return results;
+	}
+
+
+	/**
+	 * @return a fresh columnar population
+	 */
+	public ColumnarRatings createColumnarRatings() {
+		ColumnarRatings columns = new ColumnarRatings(ratings.length);
+		for ( int i = 0; i < ratings.length; i++ ) {
+			columns.addPlayer(ratings[i], deviations[i], ratingSystem.getDefaultVolatility());
+		}
+		return columns;
+	}
+
+
+	/**
+	 * Add the period's results to a columnar resultset.
+	 *
+	 * @param results
+	 */
+	public void fillColumnarResults(ColumnarResults results) {
+		results.clear();
+		for ( int i = 0; i < player1.length; i++ ) {
+			if ( draws[i] ) {
+				results.addDraw(player1[i], player2[i]);
+			} else {
+				results.addResult(player1[i], player2[i]);
+			}
+		}
+	}
+}
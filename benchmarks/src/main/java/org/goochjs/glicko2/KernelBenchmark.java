@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmarks of the individual functions from Glickman's paper: g and E from step 3, and the
+ * volatility iteration from step 5. Each operation works through a table of realistic inputs so that
+ * the JIT cannot fold the calculation away.
+ *
+ * @author Jeremy Gooch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KernelBenchmark {
+
+	private static final int INPUTS = 1024;
+
+	private VolatilitySolver illinois = new IllinoisVolatilitySolver();
+	private VolatilitySolver newton = new NewtonVolatilitySolver();
+	private SolverStatistics statistics = new SolverStatistics();
+	private double[] mu = new double[INPUTS];
+	private double[] phi = new double[INPUTS];
+	private double[] delta = new double[INPUTS];
+	private double[] v = new double[INPUTS];
+	private double[] g = new double[INPUTS];
+	private int[] opponents = new int[INPUTS];
+	private double[] scores = new double[INPUTS];
+	private double[] sums = new double[2];
+	private ExpectationKernel scalarKernel = new ScalarExpectationKernel();
+	private ExpectationKernel vectorKernel;
+
+	@Setup
+	public void createInputs() {
+		Random random = new Random(1);
+		for ( int i = 0; i < INPUTS; i++ ) {
+			mu[i] = RatingCalculator.convertRatingToGlicko2Scale(1500 + random.nextGaussian() * 300);
+			phi[i] = RatingCalculator.convertRatingDeviationToGlicko2Scale(50 + random.nextDouble() * 300);
+			v[i] = 0.5 + random.nextDouble() * 5;
+			delta[i] = random.nextGaussian() * v[i] * 0.5;
+			g[i] = RatingCalculator.g(phi[i]);
+			opponents[i] = random.nextInt(INPUTS);
+			scores[i] = random.nextInt(3) * 0.5;
+		}
+
+		try {
+			vectorKernel = (ExpectationKernel) Class.forName("org.goochjs.glicko2.VectorExpectationKernel")
+					.getDeclaredConstructor().newInstance();
+		} catch (Throwable e) {
+			vectorKernel = scalarKernel;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public void g(Blackhole blackhole) {
+		for ( int i = 0; i < INPUTS; i++ ) {
+			blackhole.consume(RatingCalculator.g(phi[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public void E(Blackhole blackhole) {
+		for ( int i = 0; i < INPUTS; i++ ) {
+			int j = ( i + 1 ) & ( INPUTS - 1 );
+			blackhole.consume(RatingCalculator.E(mu[i], mu[j], phi[j]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public void volatilityIllinois(Blackhole blackhole) {
+		for ( int i = 0; i < INPUTS; i++ ) {
+			blackhole.consume(illinois.solve(phi[i], 0.06, delta[i], v[i], 0.75, statistics));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public void volatilityNewton(Blackhole blackhole) {
+		for ( int i = 0; i < INPUTS; i++ ) {
+			blackhole.consume(newton.solve(phi[i], 0.06, delta[i], v[i], 0.75, statistics));
+		}
+	}
+
+	/**
+	 * Steps 3 and 4 for a player with {@value #INPUTS} games in the period, one opponent at a time.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public double accumulateScalar() {
+		scalarKernel.accumulate(mu[0], opponents, scores, 0, INPUTS, mu, g, sums);
+		return sums[0] + sums[1];
+	}
+
+	/**
+	 * As accumulateScalar, with the Vector API kernel (falling back to the scalar kernel if it cannot be loaded).
+	 */
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public double accumulateVectorised() {
+		vectorKernel.accumulate(mu[0], opponents, scores, 0, INPUTS, mu, g, sums);
+		return sums[0] + sums[1];
+	}
+}
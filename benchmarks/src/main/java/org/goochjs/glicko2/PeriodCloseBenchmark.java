@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full rating period close across population sizes, results-per-player distributions and draw ratios.
+ *
+ * <p>Each invocation works on a freshly built population and resultset, as closing a period updates
+ * the ratings and clears the results.</p>
+ *
+ * @author Jeremy Gooch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PeriodCloseBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int players;
+
+	@Param({"2", "10", "50"})
+	private int resultsPerPlayer;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	private BenchmarkWorkload.Distribution distribution;
+
+	@Param({"0.0", "0.1", "0.5"})
+	private double drawRatio;
+
+	private RatingCalculator ratingSystem = new RatingCalculator();
+	private ColumnarRatingCalculator columnarSystem = new ColumnarRatingCalculator(ratingSystem);
+	private BenchmarkWorkload workload;
+
+	private RatingPeriodResults results;
+	private ColumnarRatings columnarRatings;
+	private ColumnarResults columnarResults = new ColumnarResults();
+
+	@Setup(Level.Trial)
+	public void createWorkload() {
+		workload = new BenchmarkWorkload(ratingSystem, players, resultsPerPlayer, distribution, drawRatio);
+	}
+
+	@Setup(Level.Invocation)
+	public void createPeriod() {
+		List<Rating> ratings = workload.createRatings();
+		results = workload.createResults(ratings);
+		columnarRatings = workload.createColumnarRatings();
+		workload.fillColumnarResults(columnarResults);
+	}
+
+	@Benchmark
+	public RatingPeriodResults updateRatings() {
+		ratingSystem.updateRatings(results);
+		return results;
+	}
+
+	@Benchmark
+	public RatingPeriodResults updateRatingsParallel() {
+		ratingSystem.updateRatings(results, ForkJoinPool.commonPool());
+		return results;
+	}
+
+	@Benchmark
+	public ColumnarRatings updateColumnarRatings() {
+		columnarSystem.updateRatings(columnarRatings, columnarResults);
+		return columnarRatings;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the lookup of every participant's results from a rating period, and the cost of recording the results.
+ *
+ * @author Jeremy Gooch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ResultsBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	private int players;
+
+	@Param({"2", "10", "50"})
+	private int resultsPerPlayer;
+
+	@Param({"UNIFORM", "POWER_LAW"})
+	private BenchmarkWorkload.Distribution distribution;
+
+	private BenchmarkWorkload workload;
+	private List<Rating> ratings;
+	private RatingPeriodResults results;
+
+	@Setup
+	public void createResults() {
+		workload = new BenchmarkWorkload(new RatingCalculator(), players, resultsPerPlayer, distribution, 0.1);
+		ratings = workload.createRatings();
+		results = workload.createResults(ratings);
+	}
+
+	@Benchmark
+	public void getResults(Blackhole blackhole) {
+		for ( Rating player : results.getParticipants() ) {
+			blackhole.consume(results.getResults(player));
+		}
+	}
+
+	@Benchmark
+	public RatingPeriodResults addResults() {
+		return workload.createResults(ratings);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Monte Carlo simulation of a tournament with {@link RatingScenario}: each operation plays out one
+ * random outcome of a Swiss-style event between 64 members of a population of 100,000, one rating period per round.
+ * The population is shared by all the benchmark threads and is never changed.
+ *
+ * @author Jeremy Gooch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScenarioBenchmark {
+
+	private static final int POPULATION = 100000;
+	private static final int ENTRANTS = 64;
+	private static final int ROUNDS = 6;
+
+	private RatingCalculator ratingSystem = new RatingCalculator();
+	private Rating[] entrants = new Rating[ENTRANTS];
+
+	@Setup
+	public void createPopulation() {
+		ratingSystem.setLazyInactivity(true);
+		BenchmarkWorkload workload = new BenchmarkWorkload(ratingSystem, POPULATION, 2, BenchmarkWorkload.Distribution.UNIFORM, 0.0);
+		List<Rating> players = workload.createRatings();
+		Random random = new Random(1);
+
+		for ( int i = 0; i < ENTRANTS; i++ ) {
+			entrants[i] = players.get(random.nextInt(POPULATION));
+		}
+	}
+
+	/**
+	 * Each thread draws its own outcomes.
+	 */
+	@State(Scope.Thread)
+	public static class Outcomes {
+		Random random = new Random(Thread.currentThread().getId());
+	}
+
+	@Benchmark
+	public RatingScenario simulateTournament(Outcomes outcomes) {
+		return simulate(outcomes.random);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public RatingScenario simulateTournamentParallel(Outcomes outcomes) {
+		return simulate(outcomes.random);
+	}
+
+	private RatingScenario simulate(Random random) {
+		RatingScenario scenario = new RatingScenario(ratingSystem);
+
+		for ( int round = 0; round < ROUNDS; round++ ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			for ( int board = 0; board < ENTRANTS; board += 2 ) {
+				// the higher rated player is more likely to win, as the scenario's ratings stand going into the round
+				Rating white = entrants[board];
+				Rating black = entrants[( board + 1 + 2 * round ) % ENTRANTS];
+				double expected = 1.0 / ( 1.0 + Math.pow(10, ( scenario.getState(black).getRating() - scenario.getState(white).getRating() ) / 400) );
+				double draw = random.nextDouble();
+
+				if ( draw < 0.1 ) {
+					results.addDraw(white, black);
+				} else if ( random.nextDouble() < expected ) {
+					results.addResult(white, black);
+				} else {
+					results.addResult(black, white);
+				}
+			}
+			scenario.updateRatings(results);
+		}
+
+		return scenario;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a calculator end to end over a long stream of synthetic rating periods from a {@link WorkloadGenerator},
+ * and reports the throughput, memory and latency of each rating period as it goes, followed by a summary.
+ *
+ * <p>Run from the benchmarks directory after <i>mvn package</i>, with any of the arguments in order:</p>
+ * <pre>
+ * java -cp target/benchmarks.jar org.goochjs.glicko2.SoakHarness [players] [periods] [resultsPerPlayer] [sequential|parallel] [eager|lazy] [seed]
+ * </pre>
+ *
+ * <p>Each rating period is reported as a line of comma separated values: the time taken to record its results
+ * and to close it, the time spent in each phase of the close, the results closed per second, and the heap in
+ * use and garbage collection done by the end of it.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class SoakHarness {
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+
+	public static void main(String[] args) {
+		int players = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int periods = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int resultsPerPlayer = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		boolean parallel = args.length > 3 && args[3].equals("parallel");
+		boolean lazy = args.length <= 4 || args[4].equals("lazy");
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 20130101L;
+		if ( players < 2 || periods < 1 ) {
+			throw new IllegalArgumentException("At least two players and one rating period are needed");
+		}
+
+		RatingCalculator ratingSystem = new RatingCalculator();
+		ratingSystem.setLazyInactivity(lazy);
+		RatingPeriodStatistics statistics = new RatingPeriodStatistics();
+		ratingSystem.setListener(statistics);
+
+		WorkloadGenerator generator = new WorkloadGenerator(seed, players, 300, 1.0);
+		generator.setResultsPerPlayer(resultsPerPlayer);
+		List<Rating> ratings = generator.createRatings(ratingSystem);
+		RatingPeriodResults results = new RatingPeriodResults();
+		if ( ! lazy ) {
+			for ( Rating player : ratings ) {
+				results.addParticipants(player);
+			}
+		}
+
+		System.out.println("# " + players + " players, " + periods + " periods, " + resultsPerPlayer + " results per player, "
+				+ ( parallel ? "parallel" : "sequential" ) + ", " + ( lazy ? "lazy" : "eager" ) + " inactivity, seed " + seed);
+		System.out.println("period,results,playersRated,recordMs,closeMs,calculationMs,finalisationMs,resultsPerSecond,heapMb,gcCount,gcMs");
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long[] closeNanos = new long[periods];
+		long totalResults = 0;
+		long totalNanos = 0;
+		long peakHeap = 0;
+		long startCollections = collections();
+		long startCollectionMillis = collectionMillis();
+		long gcCount = startCollections;
+		long gcMillis = startCollectionMillis;
+
+		for ( int period = 0; period < periods; period++ ) {
+			long start = System.nanoTime();
+			int added = generator.fillPeriod(period, ratings, results);
+			long recorded = System.nanoTime();
+
+			if ( parallel ) {
+				ratingSystem.updateRatings(results, ForkJoinPool.commonPool());
+			} else {
+				ratingSystem.updateRatings(results);
+			}
+			long closed = System.nanoTime();
+
+			long heap = memory.getHeapMemoryUsage().getUsed();
+			long periodCollections = collections() - gcCount;
+			long periodCollectionMillis = collectionMillis() - gcMillis;
+			gcCount += periodCollections;
+			gcMillis += periodCollectionMillis;
+
+			closeNanos[period] = closed - recorded;
+			totalResults += added;
+			totalNanos += closed - start;
+			peakHeap = Math.max(peakHeap, heap);
+
+			System.out.println(period + "," + added + "," + statistics.getPlayersRated()
+					+ "," + format(( recorded - start ) / NANOS_PER_MILLI)
+					+ "," + format(( closed - recorded ) / NANOS_PER_MILLI)
+					+ "," + format(statistics.getPhaseNanos(RatingPeriodListener.Phase.CALCULATION) / NANOS_PER_MILLI)
+					+ "," + format(statistics.getPhaseNanos(RatingPeriodListener.Phase.FINALISATION) / NANOS_PER_MILLI)
+					+ "," + Math.round(added / ( ( closed - start ) / 1e9 ))
+					+ "," + format(heap / BYTES_PER_MEGABYTE)
+					+ "," + periodCollections
+					+ "," + periodCollectionMillis);
+		}
+
+		Arrays.sort(closeNanos);
+		System.out.println("# results per second " + Math.round(totalResults / ( totalNanos / 1e9 ))
+				+ ", close ms p50 " + format(percentile(closeNanos, 0.5) / NANOS_PER_MILLI)
+				+ " p99 " + format(percentile(closeNanos, 0.99) / NANOS_PER_MILLI)
+				+ " max " + format(closeNanos[periods - 1] / NANOS_PER_MILLI)
+				+ ", peak heap mb " + format(peakHeap / BYTES_PER_MEGABYTE)
+				+ ", gc count " + ( gcCount - startCollections ) + " ms " + ( gcMillis - startCollectionMillis ));
+	}
+
+
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+	}
+
+
+	private static long collections() {
+		long count = 0;
+		for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+
+	private static long collectionMillis() {
+		long millis = 0;
+		for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+}
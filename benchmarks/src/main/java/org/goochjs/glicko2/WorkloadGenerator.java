@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a stream of rating periods for a synthetic population, for scale and soak testing.
+ *
+ * <p>Each player has a hidden skill, drawn from a normal distribution, which decides the outcome of their
+ * games through the Elo expected score. How often a player competes follows a power law (Zipf), assigned
+ * at random so that activity and skill are independent. Within a rating period, a game may be a rematch
+ * of a player's previous pairing, and any game may be drawn.</p>
+ *
+ * <p>Everything is derived from the seed: the population from the seed itself, and each rating period's
+ * results from the seed and the period's number, so a period can be regenerated on its own.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class WorkloadGenerator {
+
+	private final long seed;
+	private final double[] skills;
+	private final double[] cumulativeActivity;
+	private final int[] lastOpponent;
+	private int resultsPerPlayer = 10;
+	private double drawRate = 0.1;
+	private double rematchRate = 0.2;
+
+
+	/**
+	 * @param seed
+	 * @param players           size of the population
+	 * @param skillDeviation    standard deviation of the players' hidden skills, around 1500
+	 * @param activityExponent  exponent of the power law followed by the players' activity (0 for uniform activity)
+	 */
+	public WorkloadGenerator(long seed, int players, double skillDeviation, double activityExponent) {
+		if ( players < 2 ) {
+			throw new IllegalArgumentException("At least two players are needed");
+		}
+
+		this.seed = seed;
+		Random random = new Random(seed);
+
+		skills = new double[players];
+		for ( int i = 0; i < players; i++ ) {
+			skills[i] = 1500 + random.nextGaussian() * skillDeviation;
+		}
+
+		// shuffle the activity ranks, so that a player's id says nothing about how often they compete
+		int[] ranks = new int[players];
+		for ( int i = 0; i < players; i++ ) {
+			ranks[i] = i;
+		}
+		for ( int i = players - 1; i > 0; i-- ) {
+			int j = random.nextInt(i + 1);
+			int swap = ranks[i];
+			ranks[i] = ranks[j];
+			ranks[j] = swap;
+		}
+
+		cumulativeActivity = new double[players];
+		double total = 0;
+		for ( int i = 0; i < players; i++ ) {
+			total += Math.pow(ranks[i] + 1, -activityExponent);
+			cumulativeActivity[i] = total;
+		}
+
+		lastOpponent = new int[players];
+	}
+
+
+	/**
+	 * @param resultsPerPlayer  average number of results per player in each rating period
+	 */
+	public void setResultsPerPlayer(int resultsPerPlayer) {
+		this.resultsPerPlayer = resultsPerPlayer;
+	}
+
+
+	/**
+	 * @param drawRate  proportion of games that are drawn
+	 */
+	public void setDrawRate(double drawRate) {
+		this.drawRate = drawRate;
+	}
+
+
+	/**
+	 * @param rematchRate  chance that a game is against the player's previous opponent in the same rating period
+	 */
+	public void setRematchRate(double rematchRate) {
+		this.rematchRate = rematchRate;
+	}
+
+
+	/**
+	 * @param ratingSystem
+	 * @return a population of new players, with the calculator's default values
+	 */
+	public List<Rating> createRatings(RatingCalculator ratingSystem) {
+		List<Rating> players = new ArrayList<Rating>(skills.length);
+
+		for ( int i = 0; i < skills.length; i++ ) {
+			players.add(new Rating("player" + i, ratingSystem));
+		}
+
+		return players;
+	}
+
+
+	/**
+	 * Receives the games of a rating period as they are generated.
+	 */
+	interface Games {
+		/**
+		 * @param winner
+		 * @param loser
+		 * @param draw    whether the game was drawn, in which case the order of the players means nothing
+		 */
+		void game(int winner, int loser, boolean draw);
+	}
+
+
+	/**
+	 * Add a rating period's results to a resultset.
+	 *
+	 * @param period   number of the rating period, from which its results are derived
+	 * @param players  a population built by {@link #createRatings(RatingCalculator)}
+	 * @param results
+	 * @return the number of results added
+	 */
+	public int fillPeriod(int period, final List<Rating> players, final RatingPeriodResults results) {
+		return generatePeriod(period, new Games() {
+			@Override
+			public void game(int winner, int loser, boolean draw) {
+				if ( draw ) {
+					results.addDraw(players.get(winner), players.get(loser));
+				} else {
+					results.addResult(players.get(winner), players.get(loser));
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Add a rating period's results to a columnar resultset, identifying each player by their id.
+	 *
+	 * @param period   number of the rating period, from which its results are derived
+	 * @param results
+	 * @return the number of results added
+	 */
+	public int fillPeriod(int period, final ColumnarResults results) {
+		return generatePeriod(period, new Games() {
+			@Override
+			public void game(int winner, int loser, boolean draw) {
+				if ( draw ) {
+					results.addDraw(winner, loser);
+				} else {
+					results.addResult(winner, loser);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Generate a rating period's games.
+	 *
+	 * @param period  number of the rating period, from which its results are derived
+	 * @param games   receives each game
+	 * @return the number of games generated
+	 */
+	int generatePeriod(int period, Games games) {
+		Random random = new Random(seed ^ ( ( period + 1 ) * 0x9E3779B97F4A7C15L ));
+		// each result involves two players, so this gives the requested average
+		int numberOfResults = (int) Math.max(1, (long) skills.length * resultsPerPlayer / 2);
+		double total = cumulativeActivity[cumulativeActivity.length - 1];
+
+		Arrays.fill(lastOpponent, -1);
+		for ( int i = 0; i < numberOfResults; i++ ) {
+			int p1 = pick(random, total);
+			int p2;
+
+			if ( lastOpponent[p1] >= 0 && random.nextDouble() < rematchRate ) {
+				p2 = lastOpponent[p1];
+			} else {
+				do {
+					p2 = pick(random, total);
+				} while ( p2 == p1 );
+			}
+			lastOpponent[p1] = p2;
+			lastOpponent[p2] = p1;
+
+			if ( random.nextDouble() < drawRate ) {
+				games.game(p1, p2, true);
+			} else if ( random.nextDouble() < 1.0 / ( 1.0 + Math.pow(10, ( skills[p2] - skills[p1] ) / 400) ) ) {
+				games.game(p1, p2, false);
+			} else {
+				games.game(p2, p1, false);
+			}
+		}
+
+		return numberOfResults;
+	}
+
+
+	private int pick(Random random, double total) {
+		int index = Arrays.binarySearch(cumulativeActivity, random.nextDouble() * total);
+		return index >= 0 ? index : Math.min(-index - 1, cumulativeActivity.length - 1);
+	}
+
+
+	public int getNumberOfPlayers() {
+		return skills.length;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's hidden skill, on the rating scale
+	 */
+	public double getSkill(int player) {
+		return skills[player];
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Represents a series of games between the same two players within a rating period, held as counts
+ * of wins, losses and draws rather than as one Result per game.
+ * 
+ * <p>Glickman's steps 3 and 4 only depend on a game's opponent and score, so every game in the series
+ * contributes identically apart from its score. The calculator weights the series by its number of games
+ * and uses its total score, giving the same rating as the individual results would.</p>
+ * 
+ * @author Jeremy Gooch
+ */
+public class AggregatedResult extends Result {
+	private final int wins;
+	private final int losses;
+	private final int draws;
+	
+	
+	/**
+	 * Record a series of games between two players.
+	 * 
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 */
+	public AggregatedResult(Rating player1, Rating player2, int wins, int losses, int draws) {
+		super(player1, player2);
+		
+		if ( wins < 0 || losses < 0 || draws < 0 || wins + losses + draws == 0 ) {
+			throw new IllegalArgumentException("A series must contain at least one game and no negative counts");
+		}
+		
+		this.wins = wins;
+		this.losses = losses;
+		this.draws = draws;
+	}
+	
+	
+	@Override
+	public int getNumberOfGames() {
+		return wins + losses + draws;
+	}
+	
+	
+	@Override
+	public double getTotalScore(Rating player) throws IllegalArgumentException {
+		if ( getPlayer1().equals(player) ) {
+			return wins + ( 0.5 * draws );
+		} else if ( getPlayer2().equals(player) ) {
+			return losses + ( 0.5 * draws );
+		} else {
+			throw new IllegalArgumentException("Player " + player.getUid() + " did not participate in match");
+		}
+	}
+	
+	
+	/**
+	 * Returns a player's average score over the series.
+	 * 
+	 * @param player
+	 * @return score between 0 and 1
+	 * @throws IllegalArgumentException
+	 */
+	@Override
+	public double getScore(Rating player) throws IllegalArgumentException {
+		return getTotalScore(player) / getNumberOfGames();
+	}
+	
+	
+	/**
+	 * @return the player who won more of the series' games
+	 * @throws IllegalStateException if the series was tied
+	 */
+	@Override
+	public Rating getWinner() {
+		if ( wins == losses ) {
+			throw new IllegalStateException("A tied series has no winner");
+		}
+		
+		return wins > losses ? getPlayer1() : getPlayer2();
+	}
+	
+	
+	/**
+	 * @return the player who lost more of the series' games
+	 * @throws IllegalStateException if the series was tied
+	 */
+	@Override
+	public Rating getLoser() {
+		if ( wins == losses ) {
+			throw new IllegalStateException("A tied series has no loser");
+		}
+		
+		return wins > losses ? getPlayer2() : getPlayer1();
+	}
+	
+	
+	@Override
+	Result withPlayers(Rating player1, Rating player2) {
+		return new AggregatedResult(player1, player2, wins, losses, draws);
+	}
+	
+	
+	/**
+	 * @return games won by the first player (returned by {@link #getPlayer1()})
+	 */
+	public int getWins() {
+		return wins;
+	}
+	
+	
+	/**
+	 * @return games lost by the first player
+	 */
+	public int getLosses() {
+		return losses;
+	}
+	
+	
+	public int getDraws() {
+		return draws;
+	}
+}
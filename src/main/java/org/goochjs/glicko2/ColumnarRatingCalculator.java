@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * A calculation engine that applies the same steps of Glickman's paper as {@link RatingCalculator},
+ * but over {@link ColumnarRatings} and {@link ColumnarResults} rather than Rating and Result objects.
+ *
+ * <p>Every player held in the ColumnarRatings is a participant of the rating period, so players
+ * without results will see their deviation increase. Working values are held in scratch arrays that
+ * are reused from one rating period to the next, so a period update does not allocate once the
+ * arrays have grown to the size of the population.</p>
+ *
+ * <p>The calculator can also update the records of a {@link MappedRatingStore} in place.</p>
+ *
+ * <p>This class is not thread-safe; use one instance per thread.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class ColumnarRatingCalculator {
+
+	private static final ExpectationKernel DEFAULT_KERNEL = loadKernel();
+
+	private final RatingCalculator ratingSystem;
+	private final SolverStatistics solverStatistics = new SolverStatistics();
+	private ExpectationKernel kernel = DEFAULT_KERNEL;
+	private final double[] sums = new double[2];
+
+	// scratch space, reused between rating periods
+	private double[] g = new double[0];
+	private double[] workingMu = new double[0];
+	private double[] workingPhi = new double[0];
+	private double[] workingSigma = new double[0];
+
+
+	/**
+	 * @param ratingSystem  provides tau and the other parameters of the algorithm
+	 */
+	public ColumnarRatingCalculator(RatingCalculator ratingSystem) {
+		this.ratingSystem = ratingSystem;
+	}
+
+
+	/**
+	 * <p>Calculate new ratings for every player held in the ratings, based on the results of the rating period.</p>
+	 * <p>Note that this method will clear the results.</p>
+	 *
+	 * @param ratings
+	 * @param results
+	 */
+	public void updateRatings(ColumnarRatings ratings, ColumnarResults results) {
+		calculate(ratings, results);
+		results.clear();
+	}
+
+
+	/**
+	 * As {@link #updateRatings(ColumnarRatings, ColumnarResults)}, but leaving the results (and their index)
+	 * in place, so that they can be applied to other sets of ratings.
+	 *
+	 * @param ratings
+	 * @param results
+	 */
+	void calculate(ColumnarRatings ratings, ColumnarResults results) {
+		solverStatistics.reset();
+		int n = ratings.size();
+		ensureScratchCapacity(n);
+		results.index(n);
+
+		double[] mu = ratings.mu();
+		double[] phi = ratings.phi();
+		double[] sigma = ratings.sigma();
+		int[] numberOfResults = ratings.numberOfResults();
+		int[] offsets = results.offsets();
+		int[] opponents = results.opponents();
+		double[] scores = results.scores();
+
+		// step 3 - g(phi) depends only on the opponent, so evaluate it once per player
+		for ( int i = 0; i < n; i++ ) {
+			g[i] = RatingCalculator.g(phi[i]);
+		}
+
+		for ( int i = 0; i < n; i++ ) {
+			int from = offsets[i];
+			int to = offsets[i + 1];
+
+			if ( from == to ) {
+				// if a player does not compete during the rating period, then only Step 6 applies.
+				workingMu[i] = mu[i];
+				workingPhi[i] = RatingCalculator.calculateNewRD(phi[i], sigma[i]);
+				workingSigma[i] = sigma[i];
+				continue;
+			}
+
+			// steps 3 and 4, accumulated in a single pass over the player's opponents
+			kernel.accumulate(mu[i], opponents, scores, from, to, mu, g, sums);
+
+			calculateWorkingRating(i, mu[i], phi[i], sigma[i], sums[0], sums[1]);
+			numberOfResults[i] += to - from;
+		}
+
+		// step 8 - now that every player has been calculated, move the new values into place
+		System.arraycopy(workingMu, 0, mu, 0, n);
+		System.arraycopy(workingPhi, 0, phi, 0, n);
+		System.arraycopy(workingSigma, 0, sigma, 0, n);
+	}
+
+
+	/**
+	 * <p>Calculate new ratings for every player held in the ratings, from sums that have been accumulated as the
+	 * period's results arrived.</p>
+	 * <p>Note that this method will clear the results.</p>
+	 *
+	 * @param ratings  the ratings against which the results were recorded
+	 * @param results
+	 */
+	public void updateRatings(ColumnarRatings ratings, StreamingResults results) {
+		if ( results.ratings() != ratings ) {
+			throw new IllegalArgumentException("Results were recorded against different ratings");
+		}
+
+		solverStatistics.reset();
+		int n = ratings.size();
+		ensureScratchCapacity(n);
+		results.ensurePlayers(n);
+
+		double[] mu = ratings.mu();
+		double[] phi = ratings.phi();
+		double[] sigma = ratings.sigma();
+		int[] numberOfResults = ratings.numberOfResults();
+		double[] vSums = results.vSums();
+		double[] outcomeSums = results.outcomeSums();
+		int[] games = results.games();
+
+		for ( int i = 0; i < n; i++ ) {
+			if ( games[i] == 0 ) {
+				// if a player does not compete during the rating period, then only Step 6 applies.
+				workingMu[i] = mu[i];
+				workingPhi[i] = RatingCalculator.calculateNewRD(phi[i], sigma[i]);
+				workingSigma[i] = sigma[i];
+				continue;
+			}
+
+			calculateWorkingRating(i, mu[i], phi[i], sigma[i], vSums[i], outcomeSums[i]);
+			numberOfResults[i] += games[i];
+		}
+
+		System.arraycopy(workingMu, 0, mu, 0, n);
+		System.arraycopy(workingPhi, 0, phi, 0, n);
+		System.arraycopy(workingSigma, 0, sigma, 0, n);
+
+		results.clear();
+	}
+
+
+	/**
+	 * <p>Calculate new ratings for the players in a file-backed store who have results in the rating period,
+	 * and write them back into the store's records.</p>
+	 * <p>Players without results are not touched; the store applies the increase in their deviation when
+	 * they are next read or next compete. Note that this method will clear the results.</p>
+	 *
+	 * @param store
+	 * @param results
+	 */
+	public void updateRatings(MappedRatingStore store, ColumnarResults results) {
+		solverStatistics.reset();
+		int n = store.size();
+		results.index(n);
+
+		int[] offsets = results.offsets();
+		int[] opponents = results.opponents();
+		double[] scores = results.scores();
+
+		// the working values are held against each active player's position in id order
+		int active = 0;
+		for ( int i = 0; i < n; i++ ) {
+			if ( offsets[i] < offsets[i + 1] ) {
+				active++;
+			}
+		}
+		ensureScratchCapacity(active);
+
+		int slot = 0;
+		for ( int i = 0; i < n; i++ ) {
+			int from = offsets[i];
+			int to = offsets[i + 1];
+			if ( from == to ) {
+				continue;
+			}
+
+			// the player's deviation going into the period includes any periods missed since they were last rated
+			double mu = store.getGlicko2Rating(i);
+			double phi = store.getCurrentGlicko2RatingDeviation(i);
+
+			double vSum = 0.0;
+			double outcomeSum = 0.0;
+			for ( int r = from; r < to; r++ ) {
+				int j = opponents[r];
+				double gj = RatingCalculator.g(store.getCurrentGlicko2RatingDeviation(j));
+				double e = RatingCalculator.expectedScore(mu, store.getGlicko2Rating(j), gj);
+				vSum += gj * gj * e * ( 1.0 - e );
+				outcomeSum += gj * ( scores[r] - e );
+			}
+
+			calculateWorkingRating(slot++, mu, phi, store.getVolatility(i), vSum, outcomeSum);
+		}
+
+		// now that every active player has been calculated, write the new values into the store
+		int period = store.getRatingPeriod();
+		slot = 0;
+		for ( int i = 0; i < n; i++ ) {
+			int games = offsets[i + 1] - offsets[i];
+			if ( games == 0 ) {
+				continue;
+			}
+
+			store.setGlicko2Rating(i, workingMu[slot]);
+			store.setGlicko2RatingDeviation(i, workingPhi[slot]);
+			store.setVolatility(i, workingSigma[slot]);
+			store.setNumberOfResults(i, store.getNumberOfResults(i) + games);
+			store.setLastRatedPeriod(i, period + 1);
+			slot++;
+		}
+		store.incrementRatingPeriod();
+
+		results.clear();
+	}
+
+
+	/**
+	 * Steps 5 to 7 of Glickman's paper, storing the player's new values in the given slot of the working arrays.
+	 *
+	 * @param slot
+	 * @param mu          player's rating going into the period
+	 * @param phi         player's deviation going into the period
+	 * @param sigma       player's volatility going into the period
+	 * @param vSum        sum of g(phi)^2 * E * (1 - E) over the player's results (the inverse of v)
+	 * @param outcomeSum  sum of g(phi) * (s - E) over the player's results
+	 */
+	private void calculateWorkingRating(int slot, double mu, double phi, double sigma, double vSum, double outcomeSum) {
+		double v = 1.0 / vSum;
+		double delta = v * outcomeSum;
+
+		double newSigma = ratingSystem.calculateNewVolatility(phi, sigma, delta, v, solverStatistics);
+		double phiStar = RatingCalculator.calculateNewRD(phi, newSigma);
+		double newPhi = 1.0 / Math.sqrt(( 1.0 / ( phiStar * phiStar )) + ( 1.0 / v ));
+
+		workingMu[slot] = mu + ( newPhi * newPhi * outcomeSum );
+		workingPhi[slot] = newPhi;
+		workingSigma[slot] = newSigma;
+	}
+
+
+	/**
+	 * Use the vectorised kernel for steps 3 and 4 if it has been built and the JVM allows it
+	 * (Java 17 or later, started with {@code --add-modules jdk.incubator.vector}), unless the
+	 * system property glicko2.vector is set to false.
+	 *
+	 * @return the kernel to use by default
+	 */
+	private static ExpectationKernel loadKernel() {
+		if ( Boolean.parseBoolean(System.getProperty("glicko2.vector", "true")) ) {
+			try {
+				return (ExpectationKernel) Class.forName("org.goochjs.glicko2.VectorExpectationKernel")
+						.getDeclaredConstructor().newInstance();
+			} catch (Throwable e) {
+				// not built, or the Vector API module is not present; fall through to the scalar kernel
+			}
+		}
+
+		return new ScalarExpectationKernel();
+	}
+
+
+	/**
+	 * @return whether steps 3 and 4 are being calculated with the vectorised kernel
+	 */
+	public boolean isVectorised() {
+		return !( kernel instanceof ScalarExpectationKernel );
+	}
+
+
+	/**
+	 * Choose between the vectorised kernel (where available) and the scalar one.
+	 *
+	 * @param vectorised
+	 */
+	void setVectorised(boolean vectorised) {
+		kernel = vectorised ? DEFAULT_KERNEL : new ScalarExpectationKernel();
+	}
+
+
+	/**
+	 * @return the work done by the volatility solver in the most recent rating period
+	 */
+	public SolverStatistics getSolverStatistics() {
+		return solverStatistics;
+	}
+
+
+	private void ensureScratchCapacity(int n) {
+		if ( g.length < n ) {
+			g = new double[n];
+			workingMu = new double[n];
+			workingPhi = new double[n];
+			workingSigma = new double[n];
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the ratings of a population of players in primitive arrays, indexed by a dense int id.
+ *
+ * <p>This is the columnar counterpart of a collection of {@link Rating} objects. Values are held in
+ * the Glicko-2 scale used by the algorithm's internal workings, so that {@link ColumnarRatingCalculator}
+ * never has to convert them. Players are assigned ids 0, 1, 2... in the order in which they are added.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class ColumnarRatings {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private double[] mu;
+	private double[] phi;
+	private double[] sigma;
+	private int[] numberOfResults;
+	private int size = 0;
+
+
+	/**
+	 * Create an empty set of ratings.
+	 */
+	public ColumnarRatings() {
+		this(DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * @param capacity  number of players to allocate space for up front
+	 */
+	public ColumnarRatings(int capacity) {
+		capacity = Math.max(capacity, 1);
+		mu = new double[capacity];
+		phi = new double[capacity];
+		sigma = new double[capacity];
+		numberOfResults = new int[capacity];
+	}
+
+
+	/**
+	 * Build a columnar copy of a list of ratings. The id of each player is its position in the list.
+	 *
+	 * @param ratings
+	 * @return columnar ratings
+	 */
+	public static ColumnarRatings fromRatings(List<Rating> ratings) {
+		ColumnarRatings columns = new ColumnarRatings(ratings.size());
+
+		for ( Rating rating : ratings ) {
+			int id = columns.addPlayer(rating.getRating(), rating.getRatingDeviation(), rating.getVolatility());
+			columns.numberOfResults[id] = rating.getNumberOfResults();
+		}
+
+		return columns;
+	}
+
+
+	/**
+	 * Copy the ratings back into a list of Rating objects, as built by {@link #fromRatings(List)}.
+	 *
+	 * @param ratings
+	 */
+	public void copyTo(List<Rating> ratings) {
+		for ( int id = 0; id < ratings.size(); id++ ) {
+			copyTo(id, ratings.get(id));
+		}
+	}
+
+
+	/**
+	 * Copy a player's rating into a Rating object.
+	 *
+	 * @param id
+	 * @param rating
+	 */
+	public void copyTo(int id, Rating rating) {
+		checkId(id);
+		rating.setGlicko2Rating(mu[id]);
+		rating.setGlicko2RatingDeviation(phi[id]);
+		rating.setVolatility(sigma[id]);
+		rating.incrementNumberOfResults(numberOfResults[id] - rating.getNumberOfResults());
+	}
+
+
+	/**
+	 * Add a new player with the calculator's default rating values.
+	 *
+	 * @param ratingSystem
+	 * @return id of the new player
+	 */
+	public int addPlayer(RatingCalculator ratingSystem) {
+		return addPlayer(ratingSystem.getDefaultRating(), ratingSystem.getDefaultRatingDeviation(), ratingSystem.getDefaultVolatility());
+	}
+
+
+	/**
+	 * Add a new player.
+	 *
+	 * @param rating           in Glicko scale
+	 * @param ratingDeviation  in Glicko scale
+	 * @param volatility
+	 * @return id of the new player
+	 */
+	public int addPlayer(double rating, double ratingDeviation, double volatility) {
+		ensureCapacity(size + 1);
+
+		int id = size++;
+		mu[id] = RatingCalculator.convertRatingToGlicko2Scale(rating);
+		phi[id] = RatingCalculator.convertRatingDeviationToGlicko2Scale(ratingDeviation);
+		sigma[id] = volatility;
+		numberOfResults[id] = 0;
+
+		return id;
+	}
+
+
+	/**
+	 * Make sure that there is room for at least the given number of players without further allocation.
+	 *
+	 * @param capacity
+	 */
+	public void ensureCapacity(int capacity) {
+		if ( capacity > mu.length ) {
+			int newCapacity = Math.max(capacity, mu.length + ( mu.length >> 1 ));
+			mu = Arrays.copyOf(mu, newCapacity);
+			phi = Arrays.copyOf(phi, newCapacity);
+			sigma = Arrays.copyOf(sigma, newCapacity);
+			numberOfResults = Arrays.copyOf(numberOfResults, newCapacity);
+		}
+	}
+
+
+	/**
+	 * @return the number of players held
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	public double getRating(int id) {
+		return RatingCalculator.convertRatingToOriginalGlickoScale(getGlicko2Rating(id));
+	}
+
+	public double getRatingDeviation(int id) {
+		return RatingCalculator.convertRatingDeviationToOriginalGlickoScale(getGlicko2RatingDeviation(id));
+	}
+
+	public double getGlicko2Rating(int id) {
+		checkId(id);
+		return mu[id];
+	}
+
+	public double getGlicko2RatingDeviation(int id) {
+		checkId(id);
+		return phi[id];
+	}
+
+	public double getVolatility(int id) {
+		checkId(id);
+		return sigma[id];
+	}
+
+	public int getNumberOfResults(int id) {
+		checkId(id);
+		return numberOfResults[id];
+	}
+
+	public void setGlicko2Rating(int id, double rating) {
+		checkId(id);
+		mu[id] = rating;
+	}
+
+	public void setGlicko2RatingDeviation(int id, double ratingDeviation) {
+		checkId(id);
+		phi[id] = ratingDeviation;
+	}
+
+	public void setVolatility(int id, double volatility) {
+		checkId(id);
+		sigma[id] = volatility;
+	}
+
+
+	/**
+	 * Returns a formatted rating for inspection
+	 *
+	 * @param id
+	 * @return {id} / {rating} / {ratingDeviation} / {volatility} / {numberOfResults}
+	 */
+	public String toString(int id) {
+		return id + " / " +
+				getRating(id) + " / " +
+				getRatingDeviation(id) + " / " +
+				getVolatility(id) + " / " +
+				getNumberOfResults(id);
+	}
+
+
+	private void checkId(int id) {
+		if ( id < 0 || id >= size ) {
+			throw new IllegalArgumentException("Unknown player id " + id);
+		}
+	}
+
+
+	// direct access to the columns for the calculation engine
+
+	double[] mu() {
+		return mu;
+	}
+
+	double[] phi() {
+		return phi;
+	}
+
+	double[] sigma() {
+		return sigma;
+	}
+
+	int[] numberOfResults() {
+		return numberOfResults;
+	}
+}
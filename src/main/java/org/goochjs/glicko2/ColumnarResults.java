@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.Arrays;
+
+/**
+ * Holds the results accumulated over a rating period as pairs of player ids, for use with
+ * {@link ColumnarRatingCalculator}.
+ *
+ * <p>Results are held in parallel primitive arrays, which are reused from one rating period to the
+ * next once {@link #clear()} has been called.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class ColumnarResults {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] winners;
+	private int[] losers;
+	private boolean[] draws;
+	private int size = 0;
+
+	// per-player index of the results, built on demand by the calculation engine
+	private int[] offsets = new int[1];
+	private int[] opponents = new int[0];
+	private double[] scores = new double[0];
+	private int indexedPlayers = -1;
+
+
+	/**
+	 * Create an empty resultset.
+	 */
+	public ColumnarResults() {
+		this(DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * @param capacity  number of results to allocate space for up front
+	 */
+	public ColumnarResults(int capacity) {
+		capacity = Math.max(capacity, 1);
+		winners = new int[capacity];
+		losers = new int[capacity];
+		draws = new boolean[capacity];
+	}
+
+
+	/**
+	 * Add a result to the set.
+	 *
+	 * @param winner  id of the winning player
+	 * @param loser   id of the losing player
+	 */
+	public void addResult(int winner, int loser) {
+		add(winner, loser, false);
+	}
+
+
+	/**
+	 * Record a draw between two players and add to the set.
+	 *
+	 * @param player1  id of one player
+	 * @param player2  id of the other player
+	 */
+	public void addDraw(int player1, int player2) {
+		add(player1, player2, true);
+	}
+
+
+	private void add(int player1, int player2, boolean isDraw) {
+		if ( player1 == player2 || player1 < 0 || player2 < 0 ) {
+			throw new IllegalArgumentException();
+		}
+
+		if ( size == winners.length ) {
+			int newCapacity = size + ( size >> 1 ) + 1;
+			winners = Arrays.copyOf(winners, newCapacity);
+			losers = Arrays.copyOf(losers, newCapacity);
+			draws = Arrays.copyOf(draws, newCapacity);
+		}
+
+		winners[size] = player1;
+		losers[size] = player2;
+		draws[size] = isDraw;
+		size++;
+		indexedPlayers = -1;
+	}
+
+
+	/**
+	 * @return the number of results held
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	public int getWinner(int result) {
+		checkResult(result);
+		return winners[result];
+	}
+
+	public int getLoser(int result) {
+		checkResult(result);
+		return losers[result];
+	}
+
+	public boolean isDraw(int result) {
+		checkResult(result);
+		return draws[result];
+	}
+
+
+	/**
+	 * Clear the resultset, retaining the space allocated for it.
+	 */
+	public void clear() {
+		size = 0;
+		indexedPlayers = -1;
+	}
+
+
+	private void checkResult(int result) {
+		if ( result < 0 || result >= size ) {
+			throw new IllegalArgumentException("Unknown result " + result);
+		}
+	}
+
+
+	/**
+	 * Build (or reuse) an index of each player's results, laid out so that player i's opponents and
+	 * scores are held in {@link #opponents()} and {@link #scores()} between {@code offsets()[i]} and
+	 * {@code offsets()[i+1]}. The index stays valid until the resultset is next modified.
+	 *
+	 * @param numberOfPlayers  players are expected to have ids below this value
+	 */
+	void index(int numberOfPlayers) {
+		if ( indexedPlayers == numberOfPlayers ) {
+			return;
+		}
+
+		if ( offsets.length < numberOfPlayers + 1 ) {
+			offsets = new int[numberOfPlayers + 1];
+		} else {
+			Arrays.fill(offsets, 0, numberOfPlayers + 1, 0);
+		}
+		if ( opponents.length < size * 2 ) {
+			opponents = new int[size * 2];
+			scores = new double[size * 2];
+		}
+
+		// count each player's results, then turn the counts into start offsets
+		for ( int i = 0; i < size; i++ ) {
+			if ( winners[i] >= numberOfPlayers || losers[i] >= numberOfPlayers ) {
+				throw new IllegalArgumentException("Result " + i + " refers to an unknown player");
+			}
+			offsets[winners[i] + 1]++;
+			offsets[losers[i] + 1]++;
+		}
+		for ( int i = 0; i < numberOfPlayers; i++ ) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		// place each result against both of its players, using offsets[i] as a cursor that ends up
+		// at the start of player i+1's results, then shift the offsets back into place
+		for ( int i = 0; i < size; i++ ) {
+			double winnerScore = draws[i] ? 0.5 : 1.0;
+			int w = offsets[winners[i]]++;
+			int l = offsets[losers[i]]++;
+			opponents[w] = losers[i];
+			scores[w] = winnerScore;
+			opponents[l] = winners[i];
+			scores[l] = 1.0 - winnerScore;
+		}
+		System.arraycopy(offsets, 0, offsets, 1, numberOfPlayers);
+		offsets[0] = 0;
+
+		indexedPlayers = numberOfPlayers;
+	}
+
+	int[] offsets() {
+		return offsets;
+	}
+
+	int[] opponents() {
+		return opponents;
+	}
+
+	double[] scores() {
+		return scores;
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A resultset that any number of threads can record results into at the same time.
+ *
+ * <p>Each thread appends to one of a number of striped buffers, so recording a result only ever
+ * contends with the few other threads that share its stripe. The buffered results are gathered
+ * into the resultset when its participants are requested, which is the first thing that
+ * {@link RatingCalculator#updateRatings(RatingPeriodResults)} does when a rating period is closed.
+ * Results recorded after that point are held over for the next rating period. Asking for a player's
+ * results or provisional rating gathers them first, so those can be read from any thread while results
+ * are being recorded.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class ConcurrentRatingPeriodResults extends RatingPeriodResults {
+
+	private final ResultBuffer[] stripes;
+	private final Set<Rating> pendingParticipants = ConcurrentHashMap.<Rating>newKeySet();
+	private final Object mergeLock = new Object();
+
+
+	/**
+	 * Create an empty resultset.
+	 */
+	public ConcurrentRatingPeriodResults() {
+		super();
+		stripes = createStripes();
+	}
+
+
+	/**
+	 * Constructor that allows you to initialise the list of participants.
+	 *
+	 * @param participants (Set of Rating objects)
+	 */
+	public ConcurrentRatingPeriodResults(Set<Rating> participants) {
+		super(participants);
+		stripes = createStripes();
+	}
+
+
+	private static ResultBuffer[] createStripes() {
+		// a power of two comfortably above the number of cores, so that threads rarely share a stripe
+		int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+		ResultBuffer[] stripes = new ResultBuffer[count];
+
+		for ( int i = 0; i < count; i++ ) {
+			stripes[i] = new ResultBuffer();
+		}
+
+		return stripes;
+	}
+
+
+	/**
+	 * Add a result to the set. May be called from any thread.
+	 *
+	 * @param winner
+	 * @param loser
+	 */
+	@Override
+	public void addResult(Rating winner, Rating loser) {
+		if ( ! offer(new Result(winner, loser)) ) {
+			throw new IllegalStateException("Rating period has been sealed");
+		}
+	}
+
+
+	/**
+	 * Record a draw between two players and add to the set. May be called from any thread.
+	 *
+	 * @param player1
+	 * @param player2
+	 */
+	@Override
+	public void addDraw(Rating player1, Rating player2) {
+		if ( ! offer(new Result(player1, player2, true)) ) {
+			throw new IllegalStateException("Rating period has been sealed");
+		}
+	}
+
+
+	/**
+	 * Record a series of games between two players as a single aggregated result. May be called from any thread.
+	 * 
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 */
+	@Override
+	public void addResults(Rating player1, Rating player2, int wins, int losses, int draws) {
+		if ( ! offer(new AggregatedResult(player1, player2, wins, losses, draws)) ) {
+			throw new IllegalStateException("Rating period has been sealed");
+		}
+	}
+	
+	
+	/**
+	 * Add a free-for-all match to the set. May be called from any thread.
+	 *
+	 * @param result
+	 */
+	@Override
+	public void addRankedResult(RankedResult result) {
+		if ( ! offer(result) ) {
+			throw new IllegalStateException("Rating period has been sealed");
+		}
+	}
+	
+	
+	/**
+	 * Record a result, unless the resultset has been sealed.
+	 *
+	 * @param result
+	 * @return false if the resultset has been sealed and the result was not recorded
+	 */
+	boolean offer(Result result) {
+		return stripe().add(result);
+	}
+
+	
+	/**
+	 * Record a free-for-all match, unless the resultset has been sealed.
+	 *
+	 * @param result
+	 * @return false if the resultset has been sealed and the result was not recorded
+	 */
+	boolean offer(RankedResult result) {
+		return stripe().add(result);
+	}
+
+
+	/**
+	 * Stop the resultset accepting any further results. Once this returns, every result that
+	 * has been accepted is in a stripe and will be seen when the resultset is next gathered.
+	 */
+	void seal() {
+		for ( ResultBuffer stripe : stripes ) {
+			stripe.seal();
+		}
+	}
+
+
+	/**
+	 * Add a participant to the rating period. May be called from any thread.
+	 *
+	 * @param rating
+	 */
+	@Override
+	public void addParticipants(Rating rating) {
+		pendingParticipants.add(rating);
+	}
+
+
+	/**
+	 * Gather in any results recorded since the last call, then get all the participants whose results are being tracked.
+	 *
+	 * @return set of all participants covered by the resultset.
+	 */
+	@Override
+	public Set<Rating> getParticipants() {
+		synchronized ( mergeLock ) {
+			merge();
+			return super.getParticipants();
+		}
+	}
+
+
+	/**
+	 * Gather in any results recorded since the last call, then get a list of the results for a given player.
+	 *
+	 * @param player
+	 * @return List of results
+	 */
+	@Override
+	public List<Result> getResults(Rating player) {
+		synchronized ( mergeLock ) {
+			merge();
+			return super.getResults(player);
+		}
+	}
+
+
+	/**
+	 * Gather in any results recorded since the last call, then get a list of the free-for-all matches for a given player.
+	 *
+	 * @param player
+	 * @return List of ranked results
+	 */
+	@Override
+	public List<RankedResult> getRankedResults(Rating player) {
+		synchronized ( mergeLock ) {
+			merge();
+			return super.getRankedResults(player);
+		}
+	}
+
+
+	@Override
+	Set<Rating> getPlayersWithResults() {
+		synchronized ( mergeLock ) {
+			merge();
+			return super.getPlayersWithResults();
+		}
+	}
+
+
+	@Override
+	RatingState getProvisionalRating(Rating player, RatingCalculator ratingSystem) {
+		synchronized ( mergeLock ) {
+			merge();
+			return super.getProvisionalRating(player, ratingSystem);
+		}
+	}
+
+
+	/**
+	 * Clear the gathered results. Results recorded since they were last gathered are kept for the next rating period.
+	 */
+	@Override
+	public void clear() {
+		synchronized ( mergeLock ) {
+			super.clear();
+		}
+	}
+
+
+	/**
+	 * Move the contents of each stripe into the underlying resultset.
+	 */
+	private void merge() {
+		RatingPeriodListener listener = getListener();
+		long start = listener == null ? 0 : System.nanoTime();
+		int gathered = 0;
+
+		for ( Rating participant : pendingParticipants ) {
+			pendingParticipants.remove(participant);
+			super.addParticipants(participant);
+		}
+
+		for ( ResultBuffer stripe : stripes ) {
+			List<Object> drained = stripe.drain();
+			for ( Object result : drained ) {
+				if ( result instanceof RankedResult ) {
+					super.addRankedResult((RankedResult) result);
+				} else {
+					addResult((Result) result);
+				}
+			}
+			gathered += drained.size();
+		}
+
+		if ( listener != null ) {
+			listener.resultsGathered(gathered, System.nanoTime() - start);
+		}
+	}
+
+
+	private ResultBuffer stripe() {
+		return stripes[(int) Thread.currentThread().getId() & ( stripes.length - 1 )];
+	}
+
+
+	/**
+	 * An append buffer shared by the threads that map onto one stripe. It holds both Result
+	 * and RankedResult objects, so that they are gathered in the order they were recorded.
+	 */
+	private static class ResultBuffer {
+		private List<Object> results = new ArrayList<Object>();
+		private boolean sealed = false;
+
+		synchronized boolean add(Object result) {
+			if ( sealed ) {
+				return false;
+			}
+			results.add(result);
+			return true;
+		}
+
+		synchronized void seal() {
+			sealed = true;
+		}
+
+		/**
+		 * @return the buffered results, leaving the buffer empty
+		 */
+		synchronized List<Object> drain() {
+			List<Object> drained = results;
+			results = new ArrayList<Object>();
+			return drained;
+		}
+	}
+}
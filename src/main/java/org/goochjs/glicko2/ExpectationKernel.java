@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * The inner loop of steps 3 and 4 of Glickman's paper: a player's sums of g(phi)^2 * E * (1 - E) and
+ * g(phi) * (s - E) over their opponents, as used by {@link ColumnarRatingCalculator}.
+ *
+ * @author Jeremy Gooch
+ */
+interface ExpectationKernel {
+
+	/**
+	 * @param mu          the player's rating (Glicko-2 scale)
+	 * @param opponents   opponent ids, of which those between from and to are the player's
+	 * @param scores      the player's score against each opponent
+	 * @param from
+	 * @param to
+	 * @param opponentMu  rating of each player, by id
+	 * @param opponentG   g() of the deviation of each player, by id
+	 * @param sums        receives the sum for v at index 0, and the sum for delta at index 1
+	 */
+	void accumulate(double mu, int[] opponents, double[] scores, int from, int to,
+			double[] opponentMu, double[] opponentG, double[] sums);
+}
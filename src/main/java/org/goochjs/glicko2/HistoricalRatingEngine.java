@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Re-rates an archive of results from the beginning, for one or more settings of the algorithm at once.
+ *
+ * <p>Each setting is given as a {@link RatingCalculator}, which provides tau, the default volatility of new
+ * players and the volatility solver. The archive is read one rating period at a time from a
+ * {@link RatingPeriodSource} into a single {@link ColumnarResults}; its per-player index is built once and
+ * then used to update the {@link ColumnarRatings} of every setting, so the cost of reading the archive is shared.
+ * The resultset and the calculators' scratch space are reused between periods, so the engine does not
+ * allocate once they have grown to the size of the archive's busiest period and population.</p>
+ *
+ * <p>Every player who has appeared in the archive so far is a participant of each rating period. Players
+ * are added, with their setting's default values, when they first appear.</p>
+ *
+ * <p>Progress can be checkpointed every so many rating periods, and resumed from the checkpoint after
+ * a restart. The checkpoint records each setting's tau and default volatility, which must match on resume,
+ * and ends with a checksum of its contents. If the source is a {@link SeekableRatingPeriodSource}, the
+ * checkpoint also records where it had got to, and a resumed run goes straight there rather than reading
+ * the rating periods already covered.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class HistoricalRatingEngine {
+
+	private static final int MAGIC = 0x476c6b48; // "GlkH"
+	private static final int FORMAT_VERSION = 2;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final RatingCalculator[] settings;
+	private final ColumnarRatingCalculator[] calculators;
+	private final ColumnarRatings[] ratings;
+	private final ColumnarResults results = new ColumnarResults();
+	private int ratingPeriod = 0;
+	private long sourcePosition = -1; // where the source's next rating period starts, if it can say
+
+	private String checkpointFileName = null;
+	private int checkpointInterval = 0;
+
+
+	/**
+	 * @param settings  one calculator for each setting of the algorithm to be evaluated
+	 */
+	public HistoricalRatingEngine(RatingCalculator... settings) {
+		if ( settings.length == 0 ) {
+			throw new IllegalArgumentException("At least one setting is needed");
+		}
+
+		this.settings = settings.clone();
+		this.calculators = new ColumnarRatingCalculator[settings.length];
+		this.ratings = new ColumnarRatings[settings.length];
+
+		for ( int i = 0; i < settings.length; i++ ) {
+			calculators[i] = new ColumnarRatingCalculator(settings[i]);
+			ratings[i] = new ColumnarRatings();
+		}
+	}
+
+
+	/**
+	 * Write a checkpoint after every so many rating periods, and once the archive has been exhausted.
+	 *
+	 * @param fileName
+	 * @param interval  number of rating periods between checkpoints
+	 */
+	public void setCheckpoint(String fileName, int interval) {
+		if ( interval <= 0 ) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+
+		this.checkpointFileName = fileName;
+		this.checkpointInterval = interval;
+	}
+
+
+	/**
+	 * <p>Process the rating periods supplied by the source, from the start of the archive.</p>
+	 * <p>If the engine has been resumed from a checkpoint, the periods that it covers are skipped: a
+	 * {@link SeekableRatingPeriodSource} is moved straight to the position recorded in the checkpoint, and any
+	 * other source has the periods read from it and thrown away.</p>
+	 *
+	 * @param source
+	 * @return the number of rating periods processed by this call
+	 * @throws IOException if the source cannot be read or a checkpoint cannot be written
+	 */
+	public int run(RatingPeriodSource source) throws IOException {
+		SeekableRatingPeriodSource seekable = source instanceof SeekableRatingPeriodSource ? (SeekableRatingPeriodSource) source : null;
+
+		results.clear();
+		if ( ratingPeriod > 0 && seekable != null && sourcePosition >= 0 ) {
+			seekable.seek(sourcePosition);
+		} else {
+			for ( int i = 0; i < ratingPeriod; i++ ) {
+				if ( ! source.nextPeriod(results) ) {
+					throw new IllegalStateException("Archive ends before rating period " + ratingPeriod + " of the checkpoint");
+				}
+				results.clear();
+			}
+		}
+
+		int processed = 0;
+		while ( source.nextPeriod(results) ) {
+			addNewPlayers();
+
+			for ( int i = 0; i < settings.length; i++ ) {
+				calculators[i].calculate(ratings[i], results);
+			}
+			results.clear();
+			ratingPeriod++;
+			processed++;
+			sourcePosition = seekable == null ? -1 : seekable.getPosition();
+
+			if ( checkpointFileName != null && ratingPeriod % checkpointInterval == 0 ) {
+				checkpoint(checkpointFileName);
+			}
+		}
+
+		if ( checkpointFileName != null && ratingPeriod % checkpointInterval != 0 ) {
+			checkpoint(checkpointFileName);
+		}
+
+		return processed;
+	}
+
+
+	/**
+	 * Add any players who appear for the first time in the period's results to every setting's ratings.
+	 */
+	private void addNewPlayers() {
+		int players = ratings[0].size();
+		int maxId = players - 1;
+
+		for ( int r = 0; r < results.size(); r++ ) {
+			maxId = Math.max(maxId, Math.max(results.getWinner(r), results.getLoser(r)));
+		}
+
+		if ( maxId >= players ) {
+			for ( int i = 0; i < settings.length; i++ ) {
+				ratings[i].ensureCapacity(maxId + 1);
+				while ( ratings[i].size() <= maxId ) {
+					ratings[i].addPlayer(settings[i]);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Write the ratings of every setting, the number of rating periods processed and where the source had got
+	 * to, to a file. The checkpoint replaces any previous one in a single step.
+	 *
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public void checkpoint(String fileName) throws IOException {
+		File temp = new File(fileName + ".tmp");
+		FileOutputStream file = new FileOutputStream(temp);
+		CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_SIZE), new CRC32());
+		DataOutputStream out = new DataOutputStream(checked);
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(ratingPeriod);
+			out.writeLong(sourcePosition);
+			out.writeInt(settings.length);
+			for ( RatingCalculator setting : settings ) {
+				out.writeDouble(setting.getTau());
+				out.writeDouble(setting.getDefaultVolatility());
+			}
+			out.writeInt(ratings[0].size());
+
+			for ( ColumnarRatings setting : ratings ) {
+				double[] mu = setting.mu();
+				double[] phi = setting.phi();
+				double[] sigma = setting.sigma();
+				int[] numberOfResults = setting.numberOfResults();
+
+				for ( int id = 0; id < setting.size(); id++ ) {
+					out.writeDouble(mu[id]);
+					out.writeDouble(phi[id]);
+					out.writeDouble(sigma[id]);
+					out.writeInt(numberOfResults[id]);
+				}
+			}
+
+			out.writeLong(checked.getChecksum().getValue());
+			out.flush();
+			file.getChannel().force(true);
+		} finally {
+			out.close();
+		}
+
+		Files.move(temp.toPath(), new File(fileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+
+	/**
+	 * Restore the engine from a checkpoint, so that the next call to {@link #run(RatingPeriodSource)} carries on from it.
+	 * The engine must have been created with the same settings, in the same order, as the one that wrote the checkpoint.
+	 * Nothing is changed unless the whole checkpoint is read and found to be intact.
+	 *
+	 * @param fileName
+	 * @throws IOException if the file cannot be read, is not an intact checkpoint, or was written for different settings
+	 */
+	public void resume(String fileName) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(
+				new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE), new CRC32());
+		DataInputStream in = new DataInputStream(checked);
+
+		try {
+			if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+				throw new IOException(fileName + " is not a re-rating checkpoint");
+			}
+			int period = in.readInt();
+			long position = in.readLong();
+			if ( in.readInt() != settings.length ) {
+				throw new IOException(fileName + " was written for a different number of settings");
+			}
+			for ( int i = 0; i < settings.length; i++ ) {
+				if ( in.readDouble() != settings[i].getTau() || in.readDouble() != settings[i].getDefaultVolatility() ) {
+					throw new IOException(fileName + " was written for a different tau or default volatility in setting " + i);
+				}
+			}
+			int players = in.readInt();
+
+			ColumnarRatings[] restored = new ColumnarRatings[settings.length];
+			for ( int i = 0; i < settings.length; i++ ) {
+				ColumnarRatings setting = new ColumnarRatings(players);
+				for ( int id = 0; id < players; id++ ) {
+					setting.addPlayer(settings[i]);
+					setting.setGlicko2Rating(id, in.readDouble());
+					setting.setGlicko2RatingDeviation(id, in.readDouble());
+					setting.setVolatility(id, in.readDouble());
+					setting.numberOfResults()[id] = in.readInt();
+				}
+				restored[i] = setting;
+			}
+
+			long checksum = checked.getChecksum().getValue();
+			if ( in.readLong() != checksum ) {
+				throw new IOException(fileName + " is corrupt");
+			}
+
+			System.arraycopy(restored, 0, ratings, 0, ratings.length);
+			ratingPeriod = period;
+			sourcePosition = position;
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * @return the number of rating periods of the archive that have been processed
+	 */
+	public int getRatingPeriod() {
+		return ratingPeriod;
+	}
+
+
+	/**
+	 * @return the number of settings being evaluated
+	 */
+	public int getNumberOfSettings() {
+		return settings.length;
+	}
+
+
+	/**
+	 * @param setting  index of the setting, in the order given to the constructor
+	 * @return the ratings produced by the setting
+	 */
+	public ColumnarRatings getRatings(int setting) {
+		return ratings[setting];
+	}
+
+
+	/**
+	 * @param setting  index of the setting, in the order given to the constructor
+	 * @return the work done by the setting's volatility solver in the most recent rating period
+	 */
+	public SolverStatistics getSolverStatistics(int setting) {
+		return calculators[setting].getSolverStatistics();
+	}
+}
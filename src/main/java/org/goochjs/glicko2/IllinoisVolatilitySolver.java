@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * The iterative algorithm for the new volatility exactly as set out in step 5 of Glickman's paper,
+ * a regula falsi search using the Illinois modification.
+ *
+ * <p>The terms of the function being solved that do not depend on the iteration are worked out once per
+ * solve. Each stage of the search, including the stepping out of the initial bracket in step 5.2, counts
+ * towards the iteration limit.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class IllinoisVolatilitySolver implements VolatilitySolver {
+
+	static final double DEFAULT_TOLERANCE = 0.000001;
+	static final int DEFAULT_MAX_ITERATIONS = 1000;
+
+	private final double tolerance;
+	private final int maxIterations;
+
+
+	/**
+	 * Solver with Glickman's convergence tolerance.
+	 */
+	public IllinoisVolatilitySolver() {
+		this(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+	}
+
+
+	/**
+	 * @param tolerance      the search stops once the root has been bracketed this tightly
+	 * @param maxIterations  the search gives up after this many iterations
+	 */
+	public IllinoisVolatilitySolver(double tolerance, int maxIterations) {
+		if ( tolerance <= 0 || maxIterations < 1 ) {
+			throw new IllegalArgumentException();
+		}
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+	}
+
+
+	@Override
+	public double solve(double phi, double sigma, double delta, double v, double tau, SolverStatistics statistics) {
+		double a = Math.log( sigma * sigma );
+		double deltaSquared = delta * delta;
+		double phiSquaredPlusV = phi * phi + v;
+		double tauSquared = tau * tau;
+		int iterations = 0;
+
+		// step 5.2 - set the initial values of the iterative algorithm to come in step 5.4
+		double A = a;
+		double B;
+		if ( deltaSquared > phiSquaredPlusV ) {
+			B = Math.log( deltaSquared - phiSquaredPlusV );
+		} else {
+			double k = 1;
+			B = a - ( k * Math.abs(tau));
+
+			while ( f(B, a, deltaSquared, phiSquaredPlusV, tauSquared) < 0 && iterations < maxIterations ) {
+				k++;
+				iterations++;
+				B = a - ( k * Math.abs(tau));
+			}
+		}
+
+		// step 5.3
+		double fA = f(A, a, deltaSquared, phiSquaredPlusV, tauSquared);
+		double fB = f(B, a, deltaSquared, phiSquaredPlusV, tauSquared);
+
+		// step 5.4
+		while ( Math.abs(B - A) > tolerance && iterations < maxIterations ) {
+			double C = A + (( (A-B)*fA ) / (fB - fA));
+			double fC = f(C, a, deltaSquared, phiSquaredPlusV, tauSquared);
+
+			if ( fC * fB < 0 ) {
+				A = B;
+				fA = fB;
+			} else {
+				fA = fA / 2.0;
+			}
+
+			B = C;
+			fB = fC;
+			iterations++;
+		}
+
+		statistics.record(iterations, Math.abs(B - A) <= tolerance);
+
+		return Math.exp( A/2.0 );
+	}
+
+
+	/**
+	 * The function whose root gives the new volatility, from step 5.1 of Glickman's paper.
+	 */
+	static double f(double x, double a, double deltaSquared, double phiSquaredPlusV, double tauSquared) {
+		double ex = Math.exp(x);
+		double denominator = phiSquaredPlusV + ex;
+
+		return ( ex * ( deltaSquared - phiSquaredPlusV - ex ) /
+				(2.0 * denominator * denominator )) -
+				( ( x - a ) / tauSquared );
+	}
+}
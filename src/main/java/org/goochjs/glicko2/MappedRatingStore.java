@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file-backed store of ratings, held as fixed-width records in memory-mapped segments of the file.
+ *
+ * <p>Each player is identified by a dense int id, assigned in the order in which players are added.
+ * A record holds the player's rating and deviation (in the Glicko-2 scale used by the algorithm's
+ * internal workings), volatility, number of results and the rating period in which the player was
+ * last rated. Opening an existing store simply maps the file, and the data lives outside the Java heap.
+ * The file is always little-endian, whatever the platform, so it can be moved between machines; a file
+ * that is not a rating store of this format is refused when it is opened.</p>
+ *
+ * <p>Ratings are updated in place by {@link ColumnarRatingCalculator#updateRatings(MappedRatingStore, ColumnarResults)}.
+ * Only players with results are written during a rating period. The increase in deviation of players who
+ * did not compete (step 6 of Glickman's paper) is applied when the record is read, or when the player
+ * next competes, based on the number of rating periods that have passed since they were last rated.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class MappedRatingStore implements Closeable {
+
+	private static final int MAGIC = 0x476c6b32; // "Glk2"
+	private static final int FORMAT_VERSION = 2;
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN; // the native order of most platforms
+
+	// header layout
+	private static final int HEADER_SIZE = 64;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int RATING_PERIOD_OFFSET = 8;
+	private static final int SIZE_OFFSET = 12;
+
+	// record layout
+	private static final int RECORD_SIZE = 32;
+	private static final int RATING_OFFSET = 0;
+	private static final int DEVIATION_OFFSET = 8;
+	private static final int VOLATILITY_OFFSET = 16;
+	private static final int NUMBER_OF_RESULTS_OFFSET = 24;
+	private static final int LAST_RATED_OFFSET = 28;
+
+	// records are mapped in segments, as a single mapping cannot exceed 2GB
+	private static final int SEGMENT_SHIFT = 22;
+	private static final int RECORDS_PER_SEGMENT = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = RECORDS_PER_SEGMENT - 1;
+	private static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	private int size;
+	private int ratingPeriod;
+
+
+	/**
+	 * Open a store, creating the file if it does not already exist.
+	 *
+	 * @param fileName
+	 * @throws IOException if the file cannot be mapped, or is not a rating store
+	 */
+	public MappedRatingStore(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "rw");
+		channel = file.getChannel();
+
+		boolean isNew = channel.size() == 0;
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.order(BYTE_ORDER);
+
+		if ( isNew ) {
+			header.putInt(MAGIC_OFFSET, MAGIC);
+			header.putInt(VERSION_OFFSET, FORMAT_VERSION);
+			header.putInt(RATING_PERIOD_OFFSET, 0);
+			header.putInt(SIZE_OFFSET, 0);
+		} else if ( header.getInt(MAGIC_OFFSET) == Integer.reverseBytes(MAGIC) ) {
+			// version 1 stores were written in the platform's own byte order
+			close();
+			throw new IOException(fileName + " is a rating store written in big-endian byte order");
+		} else if ( header.getInt(MAGIC_OFFSET) != MAGIC ) {
+			close();
+			throw new IOException(fileName + " is not a rating store");
+		} else if ( header.getInt(VERSION_OFFSET) != FORMAT_VERSION ) {
+			int version = header.getInt(VERSION_OFFSET);
+			close();
+			throw new IOException(fileName + " is a version " + version + " rating store, not version " + FORMAT_VERSION);
+		}
+
+		size = header.getInt(SIZE_OFFSET);
+		ratingPeriod = header.getInt(RATING_PERIOD_OFFSET);
+
+		while ( segments.size() * (long) RECORDS_PER_SEGMENT < size ) {
+			mapSegment();
+		}
+	}
+
+
+	/**
+	 * Add a new player with the calculator's default rating values.
+	 *
+	 * @param ratingSystem
+	 * @return id of the new player
+	 * @throws IOException if the file cannot be extended
+	 */
+	public int addPlayer(RatingCalculator ratingSystem) throws IOException {
+		return addPlayer(ratingSystem.getDefaultRating(), ratingSystem.getDefaultRatingDeviation(), ratingSystem.getDefaultVolatility());
+	}
+
+
+	/**
+	 * Add a new player.
+	 *
+	 * @param rating           in Glicko scale
+	 * @param ratingDeviation  in Glicko scale
+	 * @param volatility
+	 * @return id of the new player
+	 * @throws IOException if the file cannot be extended
+	 */
+	public int addPlayer(double rating, double ratingDeviation, double volatility) throws IOException {
+		if ( size == Integer.MAX_VALUE ) {
+			throw new IllegalStateException("Rating store is full");
+		}
+		if ( segments.size() * (long) RECORDS_PER_SEGMENT == size ) {
+			mapSegment();
+		}
+
+		int id = size++;
+		setGlicko2Rating(id, RatingCalculator.convertRatingToGlicko2Scale(rating));
+		setGlicko2RatingDeviation(id, RatingCalculator.convertRatingDeviationToGlicko2Scale(ratingDeviation));
+		setVolatility(id, volatility);
+		setNumberOfResults(id, 0);
+		setLastRatedPeriod(id, ratingPeriod);
+		header.putInt(SIZE_OFFSET, size);
+
+		return id;
+	}
+
+
+	private void mapSegment() throws IOException {
+		long position = HEADER_SIZE + segments.size() * SEGMENT_SIZE;
+		MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE);
+		segment.order(BYTE_ORDER);
+		segments.add(segment);
+	}
+
+
+	/**
+	 * @return the number of players held
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @return the number of rating periods that have been applied to the store
+	 */
+	public int getRatingPeriod() {
+		return ratingPeriod;
+	}
+
+
+	/**
+	 * Return the player's rating, in Glicko scale.
+	 *
+	 * @param id
+	 * @return rating
+	 */
+	public double getRating(int id) {
+		return RatingCalculator.convertRatingToOriginalGlickoScale(getGlicko2Rating(id));
+	}
+
+
+	/**
+	 * Return the player's rating deviation in Glicko scale, including the increase for any
+	 * rating periods in which the player has not competed.
+	 *
+	 * @param id
+	 * @return rating deviation
+	 */
+	public double getRatingDeviation(int id) {
+		return RatingCalculator.convertRatingDeviationToOriginalGlickoScale(getCurrentGlicko2RatingDeviation(id));
+	}
+
+
+	/**
+	 * Return the player's rating deviation in Glicko2 scale, including the increase for any
+	 * rating periods in which the player has not competed.
+	 *
+	 * @param id
+	 * @return rating deviation
+	 */
+	public double getCurrentGlicko2RatingDeviation(int id) {
+		return RatingCalculator.calculateNewRD(
+				getGlicko2RatingDeviation(id), getVolatility(id), ratingPeriod - getLastRatedPeriod(id));
+	}
+
+
+	public double getVolatility(int id) {
+		checkId(id);
+		return segment(id).getDouble(position(id) + VOLATILITY_OFFSET);
+	}
+
+
+	public int getNumberOfResults(int id) {
+		checkId(id);
+		return segment(id).getInt(position(id) + NUMBER_OF_RESULTS_OFFSET);
+	}
+
+
+	/**
+	 * @param id
+	 * @return the rating period in which the player was last rated (or was added to the store)
+	 */
+	public int getLastRatedPeriod(int id) {
+		checkId(id);
+		return segment(id).getInt(position(id) + LAST_RATED_OFFSET);
+	}
+
+
+	/**
+	 * Flush any changes through to the underlying file.
+	 */
+	public void force() {
+		header.force();
+		for ( MappedByteBuffer segment : segments ) {
+			segment.force();
+		}
+	}
+
+
+	/**
+	 * Flush any changes and close the file. The mappings are released once they have been garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		segments.clear();
+		file.close();
+	}
+
+
+	// raw access to the records for the calculation engine
+
+	double getGlicko2Rating(int id) {
+		checkId(id);
+		return segment(id).getDouble(position(id) + RATING_OFFSET);
+	}
+
+	double getGlicko2RatingDeviation(int id) {
+		checkId(id);
+		return segment(id).getDouble(position(id) + DEVIATION_OFFSET);
+	}
+
+	void setGlicko2Rating(int id, double rating) {
+		checkId(id);
+		segment(id).putDouble(position(id) + RATING_OFFSET, rating);
+	}
+
+	void setGlicko2RatingDeviation(int id, double ratingDeviation) {
+		checkId(id);
+		segment(id).putDouble(position(id) + DEVIATION_OFFSET, ratingDeviation);
+	}
+
+	void setVolatility(int id, double volatility) {
+		checkId(id);
+		segment(id).putDouble(position(id) + VOLATILITY_OFFSET, volatility);
+	}
+
+	void setNumberOfResults(int id, int numberOfResults) {
+		checkId(id);
+		segment(id).putInt(position(id) + NUMBER_OF_RESULTS_OFFSET, numberOfResults);
+	}
+
+	void setLastRatedPeriod(int id, int period) {
+		checkId(id);
+		segment(id).putInt(position(id) + LAST_RATED_OFFSET, period);
+	}
+
+	void incrementRatingPeriod() {
+		ratingPeriod++;
+		header.putInt(RATING_PERIOD_OFFSET, ratingPeriod);
+	}
+
+
+	private MappedByteBuffer segment(int id) {
+		return segments.get(id >>> SEGMENT_SHIFT);
+	}
+
+	private static int position(int id) {
+		return ( id & SEGMENT_MASK ) * RECORD_SIZE;
+	}
+
+	private void checkId(int id) {
+		if ( id < 0 || id >= size ) {
+			throw new IllegalArgumentException("Unknown player id " + id);
+		}
+	}
+}
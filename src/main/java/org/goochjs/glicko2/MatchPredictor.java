@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.List;
+
+/**
+ * Answers matchmaking queries (expected scores and match quality) for a population of players,
+ * using the functions from step 3 of Glickman's paper.
+ *
+ * <p>The predictor takes a copy of each player's rating in Glicko-2 scale, along with g() of their
+ * deviation, when it is built, so each query is a handful of arithmetic operations over primitive arrays.
+ * Players are identified by their id in a {@link ColumnarRatings}, or their position in a list of
+ * Rating objects. Build a new predictor once a rating period has been closed.</p>
+ *
+ * <p>A predictor is immutable once built, so it can be queried from any number of threads.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class MatchPredictor {
+
+	private final double[] mu;
+	private final double[] phiSquared;
+	private final double[] g;
+
+
+	/**
+	 * Build a predictor for the players held in a ColumnarRatings.
+	 *
+	 * @param ratings
+	 */
+	public MatchPredictor(ColumnarRatings ratings) {
+		int n = ratings.size();
+		mu = new double[n];
+		phiSquared = new double[n];
+		g = new double[n];
+
+		for ( int i = 0; i < n; i++ ) {
+			set(i, ratings.getGlicko2Rating(i), ratings.getGlicko2RatingDeviation(i));
+		}
+	}
+
+
+	/**
+	 * Build a predictor for a list of players, each of which is identified by its position in the list.
+	 * Each player's deviation is their current one, as given by the calculator, so that under lazy
+	 * inactivity the rating periods they have missed are taken into account.
+	 *
+	 * @param players
+	 * @param ratingSystem  the calculator that rates the players
+	 */
+	public MatchPredictor(List<Rating> players, RatingCalculator ratingSystem) {
+		int n = players.size();
+		mu = new double[n];
+		phiSquared = new double[n];
+		g = new double[n];
+
+		for ( int i = 0; i < n; i++ ) {
+			Rating player = players.get(i);
+			set(i, player.getGlicko2Rating(),
+					RatingCalculator.convertRatingDeviationToGlicko2Scale(ratingSystem.getCurrentRatingDeviation(player)));
+		}
+	}
+
+
+	private void set(int id, double rating, double deviation) {
+		mu[id] = rating;
+		phiSquared[id] = deviation * deviation;
+		g[id] = RatingCalculator.g(deviation);
+	}
+
+
+	/**
+	 * @return the number of players covered by the predictor
+	 */
+	public int size() {
+		return mu.length;
+	}
+
+
+	/**
+	 * Return the score that a player is expected to achieve against an opponent, as used in step 3 of
+	 * Glickman's paper. This takes account of the opponent's deviation, but not the player's.
+	 *
+	 * @param player
+	 * @param opponent
+	 * @return expected score, between 0 and 1
+	 */
+	public double expectedScore(int player, int opponent) {
+		return RatingCalculator.expectedScore(mu[player], mu[opponent], g[opponent]);
+	}
+
+
+	/**
+	 * Calculate a player's expected score against each of a list of candidate opponents.
+	 *
+	 * @param player
+	 * @param opponents
+	 * @param expectedScores  receives the expected score against opponents[i] at index i
+	 */
+	public void expectedScores(int player, int[] opponents, double[] expectedScores) {
+		double playerMu = mu[player];
+
+		for ( int i = 0; i < opponents.length; i++ ) {
+			int opponent = opponents[i];
+			expectedScores[i] = RatingCalculator.expectedScore(playerMu, mu[opponent], g[opponent]);
+		}
+	}
+
+
+	/**
+	 * Calculate the expected score of each of a number of pairings.
+	 *
+	 * @param players
+	 * @param opponents
+	 * @param expectedScores  receives the expected score of players[i] against opponents[i] at index i
+	 */
+	public void expectedScores(int[] players, int[] opponents, double[] expectedScores) {
+		checkPairs(players, opponents);
+
+		for ( int i = 0; i < players.length; i++ ) {
+			expectedScores[i] = expectedScore(players[i], opponents[i]);
+		}
+	}
+
+
+	/**
+	 * <p>Return the quality of a match between two players, from 0 (a foregone conclusion) to 1 (an even match).</p>
+	 * <p>This is 4E(1 - E), where E is the expected score of the match taking account of both players'
+	 * deviations, as in Glickman's original Glicko system: the players' ratings are compared through g()
+	 * of their combined deviation.</p>
+	 *
+	 * @param player
+	 * @param opponent
+	 * @return match quality
+	 */
+	public double matchQuality(int player, int opponent) {
+		double combinedG = RatingCalculator.g(Math.sqrt(phiSquared[player] + phiSquared[opponent]));
+		double e = RatingCalculator.expectedScore(mu[player], mu[opponent], combinedG);
+
+		return 4.0 * e * ( 1.0 - e );
+	}
+
+
+	/**
+	 * Calculate the quality of a match between a player and each of a list of candidate opponents.
+	 *
+	 * @param player
+	 * @param opponents
+	 * @param matchQualities  receives the quality of a match against opponents[i] at index i
+	 */
+	public void matchQualities(int player, int[] opponents, double[] matchQualities) {
+		for ( int i = 0; i < opponents.length; i++ ) {
+			matchQualities[i] = matchQuality(player, opponents[i]);
+		}
+	}
+
+
+	/**
+	 * Calculate the quality of each of a number of pairings.
+	 *
+	 * @param players
+	 * @param opponents
+	 * @param matchQualities  receives the quality of players[i] against opponents[i] at index i
+	 */
+	public void matchQualities(int[] players, int[] opponents, double[] matchQualities) {
+		checkPairs(players, opponents);
+
+		for ( int i = 0; i < players.length; i++ ) {
+			matchQualities[i] = matchQuality(players[i], opponents[i]);
+		}
+	}
+
+
+	/**
+	 * Find the candidate who would give a player the best quality match.
+	 *
+	 * @param player
+	 * @param candidates
+	 * @return the index within candidates of the best opponent, or -1 if there are no candidates other than the player
+	 */
+	public int bestMatch(int player, int[] candidates) {
+		int best = -1;
+		double bestQuality = -1;
+
+		for ( int i = 0; i < candidates.length; i++ ) {
+			if ( candidates[i] == player ) {
+				continue;
+			}
+			double quality = matchQuality(player, candidates[i]);
+			if ( quality > bestQuality ) {
+				best = i;
+				bestQuality = quality;
+			}
+		}
+
+		return best;
+	}
+
+
+	private static void checkPairs(int[] players, int[] opponents) {
+		if ( players.length != opponents.length ) {
+			throw new IllegalArgumentException("Players and opponents must be the same length");
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * <p>Solves for the new volatility using Newton's method, safeguarded by a bracket around the root.</p>
+ *
+ * <p>The search starts from the player's current volatility, which is usually close to the answer, so it
+ * typically converges in two or three evaluations of the function. Each evaluation narrows a bracket around
+ * the root. Any Newton step that would leave the bracket is replaced by a false position step within it or,
+ * until both sides of the root have been found, by a step away from it that doubles each time. The function has a single root, so the answer agrees
+ * with {@link IllinoisVolatilitySolver} to within the tolerance.</p>
+ *
+ * <p>This is the default solver used by {@link RatingCalculator}.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class NewtonVolatilitySolver implements VolatilitySolver {
+
+	static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	private final double tolerance;
+	private final int maxIterations;
+
+
+	/**
+	 * Solver with Glickman's convergence tolerance.
+	 */
+	public NewtonVolatilitySolver() {
+		this(IllinoisVolatilitySolver.DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+	}
+
+
+	/**
+	 * @param tolerance      the search stops once a step moves the estimate by less than this
+	 * @param maxIterations  the search gives up after this many iterations
+	 */
+	public NewtonVolatilitySolver(double tolerance, int maxIterations) {
+		if ( tolerance <= 0 || maxIterations < 1 ) {
+			throw new IllegalArgumentException();
+		}
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+	}
+
+
+	@Override
+	public double solve(double phi, double sigma, double delta, double v, double tau, SolverStatistics statistics) {
+		double a = Math.log( sigma * sigma );
+		double deltaSquared = delta * delta;
+		double phiSquaredPlusV = phi * phi + v;
+		double tauSquared = tau * tau;
+		int iterations = 0;
+
+		// f falls from positive to negative through the root; the bracket around it is narrowed as f is evaluated
+		double low = Double.NEGATIVE_INFINITY;    // f(low) > 0
+		double fLow = 0;
+		double high = Double.POSITIVE_INFINITY;   // f(high) < 0
+		double fHigh = 0;
+		double step = Math.abs(tau);
+
+		double x = a;
+		boolean converged = false;
+		while ( iterations < maxIterations ) {
+			iterations++;
+
+			double ex = Math.exp(x);
+			double d = phiSquaredPlusV + ex;
+			double n = ex * ( deltaSquared - phiSquaredPlusV - ex );
+			double fx = ( n / ( 2.0 * d * d )) - (( x - a ) / tauSquared );
+
+			if ( fx > 0 ) {
+				low = x;
+				fLow = fx;
+			} else if ( fx < 0 ) {
+				high = x;
+				fHigh = fx;
+			} else {
+				converged = true;
+				break;
+			}
+
+			// derivative of f, for the Newton step
+			double dn = ex * ( deltaSquared - phiSquaredPlusV ) - 2.0 * ex * ex;
+			double dfx = (( dn * d ) - ( 2.0 * n * ex )) / ( 2.0 * d * d * d ) - ( 1.0 / tauSquared );
+
+			double next = x - ( fx / dfx );
+			if ( dfx < 0 && Math.abs(next - x) <= tolerance ) {
+				x = next;
+				converged = true;
+				break;
+			}
+
+			if ( ! ( dfx < 0 && next > low && next < high ) ) {
+				// the Newton step is unusable, so either step further out to find the other side of
+				// the root, or fall back to a false position step within the bracket
+				if ( low == Double.NEGATIVE_INFINITY ) {
+					next = high - step;
+					step *= 2;
+				} else if ( high == Double.POSITIVE_INFINITY ) {
+					next = low + step;
+					step *= 2;
+				} else {
+					next = falsePosition(low, fLow, high, fHigh);
+				}
+			}
+			if ( high - low <= tolerance ) {
+				x = next;
+				converged = true;
+				break;
+			}
+			x = next;
+		}
+
+		statistics.record(iterations, converged);
+
+		return Math.exp( x/2.0 );
+	}
+
+
+	private static double falsePosition(double low, double fLow, double high, double fHigh) {
+		double x = low - ( fLow * ( high - low ) / ( fHigh - fLow ));
+
+		// guard against rounding pushing the point onto (or past) the ends of the bracket
+		return x > low && x < high ? x : ( low + high ) / 2.0;
+	}
+}
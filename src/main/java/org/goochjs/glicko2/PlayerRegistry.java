@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Assigns each player's uid a dense int id, in the order in which the uids are registered, for use with
+ * {@link ColumnarRatings}, {@link ColumnarResults} and {@link MappedRatingStore}.
+ *
+ * <p>Uids are held as UTF-8 bytes packed into large shared chunks, and looked up through an open-addressing
+ * hash table of int ids, so no String or boxed Integer is kept per player. A player costs 22 to 30 bytes
+ * plus the length of their uid: 8 for where the uid is held, 4 for its hash, 2 for its length, and 8 to 16 for
+ * their share of the hash table, which is kept between a quarter and half full. Results arriving as raw UTF-8 (for instance, straight from a network buffer)
+ * can be resolved with {@link #getId(byte[], int, int)} without creating a String at all.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class PlayerRegistry {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int CHUNK_SHIFT = 24;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int MAX_UID_LENGTH = 0xffff;
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	// uid bytes, each preceded by a two-byte length, packed into chunks; a uid never spans two chunks
+	private byte[][] chunks = new byte[1][];
+	private int chunkCount = 0;
+	private int chunkPosition = CHUNK_SIZE;
+
+	// per id: where its uid starts in the chunks, and its hash
+	private long[] locations;
+	private int[] hashes;
+	private int size = 0;
+
+	// open-addressing table of id + 1, with 0 marking an empty slot
+	private int[] table;
+	private int mask;
+
+
+	/**
+	 * Create an empty registry.
+	 */
+	public PlayerRegistry() {
+		this(DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * @param capacity  number of players to allocate space for up front
+	 */
+	public PlayerRegistry(int capacity) {
+		capacity = Math.max(capacity, 16);
+		locations = new long[capacity];
+		hashes = new int[capacity];
+		table = new int[tableSizeFor(capacity)];
+		mask = table.length - 1;
+	}
+
+
+	/**
+	 * @param capacity
+	 * @return a power of two table size that keeps the table no more than half full
+	 */
+	private static int tableSizeFor(int capacity) {
+		long size = Long.highestOneBit(Math.max(capacity, 8) * 2L - 1) << 1;
+		if ( size > 1 << 30 ) {
+			throw new IllegalStateException("Player registry is full");
+		}
+		return (int) size;
+	}
+
+
+	/**
+	 * Return the id of a player, registering them if their uid has not been seen before.
+	 *
+	 * @param uid
+	 * @return id of the player
+	 */
+	public int register(String uid) {
+		byte[] bytes = uid.getBytes(UTF8);
+		return register(bytes, 0, bytes.length);
+	}
+
+
+	/**
+	 * Return the id of a player from the UTF-8 bytes of their uid, registering them if it has not been seen before.
+	 *
+	 * @param uid
+	 * @param offset
+	 * @param length
+	 * @return id of the player
+	 */
+	public int register(byte[] uid, int offset, int length) {
+		int hash = hash(uid, offset, length);
+		int slot = find(uid, offset, length, hash);
+
+		if ( table[slot] != 0 ) {
+			return table[slot] - 1;
+		}
+
+		int id = add(uid, offset, length, hash);
+		table[slot] = id + 1;
+		if ( size * 2 > table.length ) {
+			rehash(table.length * 2);
+		}
+
+		return id;
+	}
+
+
+	/**
+	 * @param uid
+	 * @return id of the player, or -1 if they have not been registered
+	 */
+	public int getId(String uid) {
+		byte[] bytes = uid.getBytes(UTF8);
+		return getId(bytes, 0, bytes.length);
+	}
+
+
+	/**
+	 * @param uid     UTF-8 bytes of the uid
+	 * @param offset
+	 * @param length
+	 * @return id of the player, or -1 if they have not been registered
+	 */
+	public int getId(byte[] uid, int offset, int length) {
+		return table[find(uid, offset, length, hash(uid, offset, length))] - 1;
+	}
+
+
+	/**
+	 * @param id
+	 * @return the uid of the player
+	 */
+	public String getUid(int id) {
+		if ( id < 0 || id >= size ) {
+			throw new IllegalArgumentException("Unknown player id " + id);
+		}
+
+		byte[] chunk = chunks[(int) ( locations[id] >>> CHUNK_SHIFT )];
+		int position = (int) ( locations[id] & ( CHUNK_SIZE - 1 ) );
+		int length = uidLength(chunk, position);
+		return new String(chunk, position + 2, length, UTF8);
+	}
+
+
+	/**
+	 * @return the number of players registered
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * Add a player with the calculator's default values to the ratings for each id that has been registered
+	 * since the ratings were last brought into line with the registry, so that the two share the same ids.
+	 *
+	 * @param ratings
+	 * @param ratingSystem
+	 */
+	public void addPlayers(ColumnarRatings ratings, RatingCalculator ratingSystem) {
+		ratings.ensureCapacity(size);
+		while ( ratings.size() < size ) {
+			ratings.addPlayer(ratingSystem);
+		}
+	}
+
+
+	/**
+	 * @return the slot holding the uid, or the empty slot at which it should be added
+	 */
+	private int find(byte[] uid, int offset, int length, int hash) {
+		int slot = hash & mask;
+
+		while ( true ) {
+			int entry = table[slot];
+			if ( entry == 0 ) {
+				return slot;
+			}
+			int id = entry - 1;
+			if ( hashes[id] == hash && uidEquals(id, uid, offset, length) ) {
+				return slot;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+
+	private boolean uidEquals(int id, byte[] uid, int offset, int length) {
+		byte[] chunk = chunks[(int) ( locations[id] >>> CHUNK_SHIFT )];
+		int position = (int) ( locations[id] & ( CHUNK_SIZE - 1 ) );
+
+		if ( uidLength(chunk, position) != length ) {
+			return false;
+		}
+		position += 2;
+		for ( int i = 0; i < length; i++ ) {
+			if ( chunk[position + i] != uid[offset + i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static int uidLength(byte[] chunk, int position) {
+		return ( ( chunk[position] & 0xff ) << 8 ) | ( chunk[position + 1] & 0xff );
+	}
+
+
+	/**
+	 * Store a new uid and give it the next id.
+	 */
+	private int add(byte[] uid, int offset, int length, int hash) {
+		if ( length > MAX_UID_LENGTH ) {
+			throw new IllegalArgumentException("Uid is longer than " + MAX_UID_LENGTH + " bytes");
+		}
+		if ( size == Integer.MAX_VALUE - 1 ) {
+			throw new IllegalStateException("Player registry is full");
+		}
+
+		if ( chunkPosition + 2 + length > CHUNK_SIZE ) {
+			if ( chunkCount == chunks.length ) {
+				chunks = Arrays.copyOf(chunks, chunks.length * 2);
+			}
+			// start small, so that a small registry does not hold a whole chunk
+			chunks[chunkCount++] = new byte[Math.max(2 + length, Math.min(CHUNK_SIZE, 1 << 12))];
+			chunkPosition = 0;
+		}
+
+		int chunkIndex = chunkCount - 1;
+		byte[] chunk = chunks[chunkIndex];
+		if ( chunkPosition + 2 + length > chunk.length ) {
+			chunk = Arrays.copyOf(chunk, (int) Math.min(CHUNK_SIZE, Math.max(chunkPosition + 2L + length, chunk.length * 2L)));
+			chunks[chunkIndex] = chunk;
+		}
+
+		chunk[chunkPosition] = (byte) ( length >>> 8 );
+		chunk[chunkPosition + 1] = (byte) length;
+		System.arraycopy(uid, offset, chunk, chunkPosition + 2, length);
+
+		if ( size == locations.length ) {
+			int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, locations.length + ( (long) locations.length >> 1 ));
+			locations = Arrays.copyOf(locations, newCapacity);
+			hashes = Arrays.copyOf(hashes, newCapacity);
+		}
+
+		int id = size++;
+		locations[id] = ( (long) chunkIndex << CHUNK_SHIFT ) | chunkPosition;
+		hashes[id] = hash;
+		chunkPosition += 2 + length;
+
+		return id;
+	}
+
+
+	private void rehash(int tableSize) {
+		if ( tableSize > 1 << 30 ) {
+			throw new IllegalStateException("Player registry is full");
+		}
+
+		table = new int[tableSize];
+		mask = tableSize - 1;
+
+		for ( int id = 0; id < size; id++ ) {
+			int slot = hashes[id] & mask;
+			while ( table[slot] != 0 ) {
+				slot = ( slot + 1 ) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+
+
+	/**
+	 * FNV-1a over the uid's bytes, with a final mix so that the low bits used to pick a slot are well spread.
+	 */
+	private static int hash(byte[] uid, int offset, int length) {
+		int hash = 0x811c9dc5;
+		for ( int i = offset; i < offset + length; i++ ) {
+			hash = ( hash ^ ( uid[i] & 0xff ) ) * 0x01000193;
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+}
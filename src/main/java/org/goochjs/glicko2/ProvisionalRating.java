@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Holds the running totals from steps 3 and 4 of Glickman's paper for one player in an open rating period,
+ * so that their provisional rating can be brought up to date by folding in only the results added since
+ * it was last asked for.
+ *
+ * @author Jeremy Gooch
+ */
+class ProvisionalRating extends RatingWorkings {
+
+	RatingCalculator ratingSystem; // the totals are only valid for the calculator, rating period and rating they were built from
+	int ratingPeriod;
+	RatingState basis;
+
+	int results; // how many of the player's results and ranked results have been folded in
+	int rankedResults;
+
+	RatingState estimate; // the provisional rating as at the totals above, or null if it needs recalculating
+
+
+	/**
+	 * Discard the totals if they were built from a different calculator, rating period or rating.
+	 *
+	 * @param ratingSystem
+	 * @param ratingPeriod
+	 * @param basis the player's current state
+	 */
+	void validate(RatingCalculator ratingSystem, int ratingPeriod, RatingState basis) {
+		if ( this.ratingSystem != ratingSystem || this.ratingPeriod != ratingPeriod || this.basis != basis ) {
+			this.ratingSystem = ratingSystem;
+			this.ratingPeriod = ratingPeriod;
+			this.basis = basis;
+			results = 0;
+			rankedResults = 0;
+			games = 0;
+			vSum = 0.0;
+			outcomeSum = 0.0;
+			estimate = null;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Represents the result of a free-for-all match between any number of players, held as the finishing order.
+ * 
+ * <p>The match counts as a game between every pair of its players: each player beats those who finished
+ * below them, loses to those who finished above them and draws with anyone who shared their place. The
+ * calculator works through these pairings as it goes, so no pairwise Result objects are created.</p>
+ * 
+ * @author Jeremy Gooch
+ */
+public class RankedResult {
+	private final Rating[] players;
+	private final int[] ranks;
+	
+	
+	/**
+	 * Record a match from its finishing order, with no shared places.
+	 * 
+	 * @param finishingOrder players in the order in which they finished, winner first
+	 */
+	public RankedResult(Rating... finishingOrder) {
+		this(finishingOrder, null);
+	}
+	
+	
+	/**
+	 * Record a match in which some players may have shared a place.
+	 * 
+	 * @param players
+	 * @param ranks    the place of players[i] at index i; lower is better and players with the same rank drew
+	 */
+	public RankedResult(Rating[] players, int[] ranks) {
+		if ( players.length < 2 || ( ranks != null && ranks.length != players.length ) ) {
+			throw new IllegalArgumentException("A ranked match needs at least two players, each with a rank");
+		}
+		if ( new HashSet<Rating>(Arrays.asList(players)).size() != players.length ) {
+			throw new IllegalArgumentException("A player can only finish a match once");
+		}
+		
+		this.players = players.clone();
+		
+		if ( ranks == null ) {
+			this.ranks = new int[players.length];
+			for ( int i = 0; i < players.length; i++ ) {
+				this.ranks[i] = i;
+			}
+		} else {
+			this.ranks = ranks.clone();
+		}
+	}
+	
+	
+	/**
+	 * @return the number of players in the match
+	 */
+	public int getNumberOfPlayers() {
+		return players.length;
+	}
+	
+	
+	public Rating getPlayer(int i) {
+		return players[i];
+	}
+	
+	
+	public int getRank(int i) {
+		return ranks[i];
+	}
+	
+	
+	/**
+	 * @return the players in the order in which they were recorded
+	 */
+	public List<Rating> getPlayers() {
+		return Arrays.asList(players.clone());
+	}
+	
+	
+	/**
+	 * Test whether a particular player participated in the match.
+	 * 
+	 * @param player
+	 * @return boolean (true if player participated in the match)
+	 */
+	public boolean participated(Rating player) {
+		return indexOf(player) >= 0;
+	}
+	
+	
+	/**
+	 * Return a player's score against one of their opponents in the match.
+	 * 
+	 * @param player index of the player
+	 * @param opponent index of the opponent
+	 * @return 1 for finishing above the opponent, 0.5 for sharing their place and 0 for finishing below
+	 */
+	public double getScore(int player, int opponent) {
+		if ( ranks[player] < ranks[opponent] ) {
+			return 1.0;
+		} else if ( ranks[player] == ranks[opponent] ) {
+			return 0.5;
+		} else {
+			return 0.0;
+		}
+	}
+	
+	
+	/**
+	 * @param player
+	 * @return index of the player within the match, or -1 if they did not participate
+	 */
+	int indexOf(Rating player) {
+		for ( int i = 0; i < players.length; i++ ) {
+			if ( players[i].equals(player) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -13,20 +13,23 @@ package org.goochjs.glicko2;
  * Prof Glickman's paper on the algorithm allows scaling of these values to be more directly comparable with existing rating
  * systems such as Elo or USCF's derivation thereof. This implementation outputs ratings at this larger scale.</p>
  *
+ * <p>The rating, deviation, volatility and number of results are held together as an immutable {@link RatingState},
+ * which is replaced in a single step when any of them changes, so {@link #getState()} always returns a consistent set.</p>
+ *
  * @author Jeremy Gooch
  */
 public class Rating {
 
 	private String uid; // not actually used by the calculation engine but useful to track whose rating is whose
-	private double rating;
-	private double ratingDeviation;
-	private double volatility;
-	private int numberOfResults = 0; // the number of results from which the rating has been calculated
+	private volatile RatingState state; // the rating and deviation are held in Glicko scale
+	private final int createdPeriod; // the calculator's rating period when the rating was created
+	private int lastRatedPeriod; // the calculator's rating period in which the rating was last brought up to date
 
 	 // the following variables are used to hold values temporarily whilst running calculations
 	private double workingRating;
 	private double workingRatingDeviation;
 	private double workingVolatility;
+	private int workingNumberOfResults;
 	
 	/**
 	 * 
@@ -34,17 +37,14 @@ public class Rating {
 	 * @param ratingSystem  An instance of the RatingCalculator object
 	 */
 	public Rating(String uid, RatingCalculator ratingSystem) {
-		this.uid = uid;
-		this.rating = ratingSystem.getDefaultRating();
-		this.ratingDeviation = ratingSystem.getDefaultRatingDeviation();
-		this.volatility = ratingSystem.getDefaultVolatility();
+		this(uid, ratingSystem, ratingSystem.getDefaultRating(), ratingSystem.getDefaultRatingDeviation(), ratingSystem.getDefaultVolatility());
 	}
 
 	public Rating(String uid, RatingCalculator ratingSystem, double initRating, double initRatingDeviation, double initVolatility) {
 		this.uid = uid;
-		this.rating = initRating;
-		this.ratingDeviation = initRatingDeviation;
-		this.volatility = initVolatility;
+		this.lastRatedPeriod = ratingSystem.getRatingPeriod();
+		this.createdPeriod = lastRatedPeriod;
+		this.state = new RatingState(initRating, initRatingDeviation, initVolatility, 0, lastRatedPeriod, null);
 	}
 
 	/**
@@ -53,11 +53,12 @@ public class Rating {
 	 * @return double
 	 */
 	public double getRating() {
-		return this.rating;
+		return state.getRating();
 	}
 
 	public void setRating(double rating) {
-		this.rating = rating;
+		RatingState current = state;
+		replaceState(rating, current.getRatingDeviation(), current.getVolatility(), current.getNumberOfResults());
 	}
 
 	/**
@@ -67,7 +68,7 @@ public class Rating {
 	 * @return double
 	 */
 	public double getGlicko2Rating() {
-		return RatingCalculator.convertRatingToGlicko2Scale(this.rating);
+		return RatingCalculator.convertRatingToGlicko2Scale(state.getRating());
 	}
 
 	/**
@@ -76,33 +77,43 @@ public class Rating {
 	 * @param double
 	 */
 	public void setGlicko2Rating(double rating) {
-		this.rating = RatingCalculator.convertRatingToOriginalGlickoScale(rating);
+		setRating(RatingCalculator.convertRatingToOriginalGlickoScale(rating));
 	}
 
 	public double getVolatility() {
-		return volatility;
+		return state.getVolatility();
 	}
 
 	public void setVolatility(double volatility) {
-		this.volatility = volatility;
+		RatingState current = state;
+		replaceState(current.getRating(), current.getRatingDeviation(), volatility, current.getNumberOfResults());
 	}
 
+	/**
+	 * Return the rating deviation of the player as at the last rating period in which they were rated.
+	 * With lazy inactivity, this does not include the increase for the rating periods missed since then,
+	 * which {@link RatingCalculator#getCurrentRatingDeviation(Rating)} does.
+	 * 
+	 * @return double
+	 */
 	public double getRatingDeviation() {
-		return ratingDeviation;
+		return state.getRatingDeviation();
 	}
 
 	public void setRatingDeviation(double ratingDeviation) {
-		this.ratingDeviation = ratingDeviation;
+		RatingState current = state;
+		replaceState(current.getRating(), ratingDeviation, current.getVolatility(), current.getNumberOfResults());
 	}
 
 	/**
 	 * Return the rating deviation of the player scaled down
 	 * to the scale used by the algorithm's internal workings.
+	 * As with {@link #getRatingDeviation()}, this is as at the last rating period in which they were rated.
 	 * 
 	 * @return double
 	 */
 	public double getGlicko2RatingDeviation() {
-		return RatingCalculator.convertRatingDeviationToGlicko2Scale( ratingDeviation );
+		return RatingCalculator.convertRatingDeviationToGlicko2Scale( state.getRatingDeviation() );
 	}
 
 	/**
@@ -111,21 +122,86 @@ public class Rating {
 	 * @param double
 	 */
 	public void setGlicko2RatingDeviation(double ratingDeviation) {
-		this.ratingDeviation = RatingCalculator.convertRatingDeviationToOriginalGlickoScale( ratingDeviation );
+		setRatingDeviation(RatingCalculator.convertRatingDeviationToOriginalGlickoScale( ratingDeviation ));
+	}
+
+	/**
+	 * Replace the current state with one holding the given values, as a correction within the same rating period.
+	 */
+	private void replaceState(double rating, double ratingDeviation, double volatility, int numberOfResults) {
+		RatingState current = state;
+		state = new RatingState(rating, ratingDeviation, volatility, numberOfResults, current.getVersion(), current.previous);
 	}
 
 	/**
 	 * Used by the calculation engine, to move interim calculations into their "proper" places.
 	 * 
+	 * <p>The new values are published as a single new state, versioned with the rating period
+	 * to which the rating is now up to date.</p>
 	 */
 	public void finaliseRating() {
-		this.setGlicko2Rating(workingRating);
-		this.setGlicko2RatingDeviation(workingRatingDeviation);
-		this.setVolatility(workingVolatility);
+		RatingState current = state;
+		
+		pushState(
+				RatingCalculator.convertRatingToOriginalGlickoScale(workingRating),
+				RatingCalculator.convertRatingDeviationToOriginalGlickoScale(workingRatingDeviation),
+				workingVolatility,
+				current.getNumberOfResults() + workingNumberOfResults,
+				Math.max(lastRatedPeriod, current.getVersion()));
 		
 		this.setWorkingRatingDeviation(0);
 		this.setWorkingRating(0);
 		this.setWorkingVolatility(0);
+		this.workingNumberOfResults = 0;
+	}
+
+	/**
+	 * Set the rating deviation (in Glicko2 scale) for a rating period that has not yet been published, leaving
+	 * the current values visible to snapshots of earlier rating periods.
+	 * 
+	 * @param ratingDeviation
+	 * @param version
+	 */
+	void setGlicko2RatingDeviation(double ratingDeviation, int version) {
+		RatingState current = state;
+		
+		pushState(
+				current.getRating(),
+				RatingCalculator.convertRatingDeviationToOriginalGlickoScale( ratingDeviation ),
+				current.getVolatility(),
+				current.getNumberOfResults(),
+				version);
+	}
+
+	/**
+	 * Replace the player's values, and the rating period they are up to date from, in a single step, when
+	 * a rating period that has already been published is recalculated.
+	 * 
+	 * @param corrected
+	 * @param lastRatedPeriod
+	 */
+	void correctState(RatingState corrected, int lastRatedPeriod) {
+		replaceState(corrected.getRating(), corrected.getRatingDeviation(), corrected.getVolatility(), corrected.getNumberOfResults());
+		this.lastRatedPeriod = lastRatedPeriod;
+	}
+
+	/**
+	 * Publish a new state for the given rating period. A state from an earlier rating period is kept as the new
+	 * state's previous one, and any older history is dropped; a state from the same rating period is replaced.
+	 */
+	private void pushState(double rating, double ratingDeviation, double volatility, int numberOfResults, int version) {
+		RatingState current = state;
+		// only one rating period of history is kept
+		RatingState previous = current.getVersion() < version ? current.withoutHistory() : current.previous;
+		
+		state = new RatingState(rating, ratingDeviation, volatility, numberOfResults, version, previous);
+	}
+
+	/**
+	 * @return the player's current values, which are consistent with one another
+	 */
+	public RatingState getState() {
+		return state;
 	}
 	
 	/**
@@ -135,29 +211,59 @@ public class Rating {
 	 */
 	@Override
 	public String toString() {
+		RatingState current = state;
 		return uid + " / " +
-				rating + " / " +
-				ratingDeviation + " / " +
-				volatility + " / " +
-				numberOfResults;
+				current.getRating() + " / " +
+				current.getRatingDeviation() + " / " +
+				current.getVolatility() + " / " +
+				current.getNumberOfResults();
 	}
 	
 	public int getNumberOfResults() {
-		return numberOfResults;
+		return state.getNumberOfResults();
 	}
 
 	public void incrementNumberOfResults(int increment) {
-		this.numberOfResults = numberOfResults + increment;
+		RatingState current = state;
+		replaceState(current.getRating(), current.getRatingDeviation(), current.getVolatility(), current.getNumberOfResults() + increment);
 	}
 
 	public String getUid() {
 		return uid;
 	}
 
+	/**
+	 * Return the calculator's rating period from which the rating is up to date.
+	 * 
+	 * @return rating period
+	 */
+	public int getLastRatedPeriod() {
+		return lastRatedPeriod;
+	}
+
+	void setLastRatedPeriod(int lastRatedPeriod) {
+		this.lastRatedPeriod = lastRatedPeriod;
+	}
+
+	/**
+	 * @return the calculator's rating period when the rating was created
+	 */
+	int getCreatedPeriod() {
+		return createdPeriod;
+	}
+
 	public void setWorkingVolatility(double workingVolatility) {
 		this.workingVolatility = workingVolatility;
 	}
 
+	void setWorkingNumberOfResults(int workingNumberOfResults) {
+		this.workingNumberOfResults = workingNumberOfResults;
+	}
+
+	double getWorkingRating() {
+		return workingRating;
+	}
+
 	public void setWorkingRating(double workingRating) {
 		this.workingRating = workingRating;
 	}
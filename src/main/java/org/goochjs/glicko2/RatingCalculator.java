@@ -6,7 +6,10 @@
  */
 package org.goochjs.glicko2;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This is the main calculation engine based on the contents of Glickman's paper.
@@ -22,10 +25,16 @@ public class RatingCalculator {
 	private final static double DEFAULT_VOLATILITY =  0.06;
 	private final static double DEFAULT_TAU =  0.75;
 	private final static double MULTIPLIER =  173.7178;
-	private final static double CONVERGENCE_TOLERANCE =  0.000001;
 	
 	private double tau; // constrains volatility over time
 	private double defaultVolatility;
+	private int ratingPeriod = 0; // the number of rating periods this calculator has processed
+	private boolean lazyInactivity = false;
+	private VolatilitySolver volatilitySolver = new NewtonVolatilitySolver();
+	private SolverStatistics solverStatistics = new SolverStatistics(); // for the most recent rating period
+	private volatile RatingPeriodListener listener = null;
+	private RatingRankIndex rankIndex = null;
+	private volatile RatingSnapshot snapshot = new RatingSnapshot(0); // published once each rating period is finalised
 	
 	
 	/**
@@ -60,188 +69,462 @@ public class RatingCalculator {
 	 * @param results
 	 */
 	public void updateRatings(RatingPeriodResults results) {
-		for ( Rating player : results.getParticipants() ) {
-			if ( results.getResults(player).size() > 0 ) {
-				calculateNewRating(player, results.getResults(player));
-			} else {
-				// if a player does not compete during the rating period, then only Step 6 applies.
-				// the player's rating and volatility parameters remain the same but deviation increases
-				player.setWorkingRating(player.getGlicko2Rating());
-				player.setWorkingRatingDeviation(calculateNewRD(player.getGlicko2RatingDeviation(), player.getVolatility()));
-				player.setWorkingVolatility(player.getVolatility());
+		RatingPeriodListener listener = this.listener;
+		long start = periodStarted(listener);
+		
+		Collection<Rating> players = getPlayersToRate(results);
+		long mark = phaseCompleted(listener, RatingPeriodListener.Phase.PARTICIPANTS, players.size(), start);
+		
+		if ( lazyInactivity ) {
+			for ( Rating player : players ) {
+				applyInactivity(player);
 			}
+			mark = phaseCompleted(listener, RatingPeriodListener.Phase.INACTIVITY, players.size(), mark);
+		}
+		
+		SolverStatistics statistics = new SolverStatistics();
+		for ( Rating player : players ) {
+			calculateWorkingRating(player, results.getGatheredResults(player), results.getGatheredRankedResults(player), statistics, listener);
 		}
+		solverStatistics = statistics;
+		mark = phaseCompleted(listener, RatingPeriodListener.Phase.CALCULATION, players.size(), mark);
 		
 		// now iterate through the participants and confirm their new ratings
-		for ( Rating player : results.getParticipants() ) {
+		for ( Rating player : players ) {
 			player.finaliseRating();
+			if ( rankIndex != null ) {
+				rankIndex.update(player);
+			}
 		}
+		phaseCompleted(listener, RatingPeriodListener.Phase.FINALISATION, players.size(), mark);
 		
 		// lastly, clear the result set down in anticipation of the next rating period
+		ratingPeriod++;
+		if ( rankIndex != null ) {
+			rankIndex.expire(ratingPeriod);
+		}
+		snapshot = new RatingSnapshot(ratingPeriod);
 		results.clear();
+		periodCompleted(listener, start, statistics);
 	}
 
 	
 	/**
-	 * This is the function processing described in step 5 of Glickman's paper.
-	 *  
-	 * @param player
+	 * <p>As {@link #updateRatings(RatingPeriodResults)}, but with the participants split across the
+	 * threads of the given fork-join pool.</p>
+	 * <p>Each player's new rating is calculated purely from the ratings held at the start of the
+	 * rating period, so the results are identical to those of the sequential method. All of the
+	 * calculations complete before any rating is finalised.</p>
+	 * 
 	 * @param results
+	 * @param pool
 	 */
-	private void calculateNewRating(Rating player, List<Result> results) {
-		double phi = player.getGlicko2RatingDeviation();
-		double sigma = player.getVolatility();
-		double a = Math.log( Math.pow(sigma, 2) );
-		double delta = delta(player, results);
-		double v = v(player, results);
+	public void updateRatings(RatingPeriodResults results, ForkJoinPool pool) {
+		RatingPeriodListener listener = this.listener;
+		long start = periodStarted(listener);
 		
-		// step 5.2 - set the initial values of the iterative algorithm to come in step 5.4
-		double A = a;
-		double B = 0.0;
- 		if ( Math.pow(delta, 2) > Math.pow(phi, 2) + v ) {
-			B = Math.log( Math.pow(delta, 2) - Math.pow(phi, 2) - v );			
-		} else {
-			double k = 1;
-			B = a - ( k * Math.abs(tau));
-			
-			while ( f(B , delta, phi, v, a, tau) < 0 ) {
-				k++;
-				B = a - ( k * Math.abs(tau));
+		Rating[] players = getPlayersToRate(results).toArray(new Rating[0]);
+		long mark = phaseCompleted(listener, RatingPeriodListener.Phase.PARTICIPANTS, players.length, start);
+		
+		if ( lazyInactivity ) {
+			pool.invoke(new RatingUpdateTask(Phase.APPLY_INACTIVITY, results, players, 0, players.length, null, null));
+			mark = phaseCompleted(listener, RatingPeriodListener.Phase.INACTIVITY, players.length, mark);
+		}
+		SolverStatistics statistics = new SolverStatistics();
+		pool.invoke(new RatingUpdateTask(Phase.CALCULATE, results, players, 0, players.length, statistics, listener));
+		solverStatistics = statistics;
+		mark = phaseCompleted(listener, RatingPeriodListener.Phase.CALCULATION, players.length, mark);
+		pool.invoke(new RatingUpdateTask(Phase.FINALISE, results, players, 0, players.length, null, null));
+		if ( rankIndex != null ) {
+			// the index is updated from this thread alone, rather than contending for it from the pool
+			for ( Rating player : players ) {
+				rankIndex.update(player);
 			}
 		}
-
-		// step 5.3
-		double fA = f(A , delta, phi, v, a, tau);
-		double fB = f(B , delta, phi, v, a, tau);
-
-		// step 5.4
-		while ( Math.abs(B - A) > CONVERGENCE_TOLERANCE ) {
- 			double C = A + (( (A-B)*fA ) / (fB - fA));
- 			double fC = f(C , delta, phi, v, a, tau);
- 			
- 			if ( fC * fB < 0 ) {
- 				A = B;
- 				fA = fB;
- 			} else {	
- 				fA = fA / 2.0;
- 			}
- 			
- 			B = C;
- 			fB = fC;
- 		}
- 		
-		double newSigma = Math.exp( A/2.0 );
- 		
-		player.setWorkingVolatility(newSigma);
-
-		// Step 6
-		double phiStar = calculateNewRD( phi, newSigma );
+		phaseCompleted(listener, RatingPeriodListener.Phase.FINALISATION, players.length, mark);
 		
-		// Step 7
-		double newPhi = 1.0 / Math.sqrt(( 1.0 / Math.pow(phiStar, 2) ) + ( 1.0 / v ));
+		ratingPeriod++;
+		if ( rankIndex != null ) {
+			rankIndex.expire(ratingPeriod);
+		}
+		snapshot = new RatingSnapshot(ratingPeriod);
+		results.clear();
+		periodCompleted(listener, start, statistics);
+	}
 
-		// note that the newly calculated rating values are stored in a "working" area in the Rating object
-		// this avoids us attempting to calculate subsequent participants' ratings against a moving target
-		player.setWorkingRating(
-				player.getGlicko2Rating()
-				+ ( Math.pow(newPhi, 2) * outcomeBasedRating(player, results)));
-		player.setWorkingRatingDeviation(newPhi);
-		player.incrementNumberOfResults(results.size());
+	
+	/**
+	 * The timing helpers below do nothing, not even read the clock, when there is no listener.
+	 * 
+	 * @param listener
+	 * @return time at which the period started
+	 */
+	private long periodStarted(RatingPeriodListener listener) {
+		if ( listener == null ) {
+			return 0;
+		}
+		listener.periodStarted(ratingPeriod);
+		return System.nanoTime();
 	}
+
 	
-	private double f(double x, double delta, double phi, double v, double a, double tau) {
-		return ( Math.exp(x) * ( Math.pow(delta, 2) - Math.pow(phi, 2) - v - Math.exp(x) ) /
-				(2.0 * Math.pow( Math.pow(phi, 2) + v + Math.exp(x), 2) )) - 
-				( ( x - a ) / Math.pow(tau, 2) );
+	/**
+	 * @param listener
+	 * @param phase
+	 * @param players
+	 * @param phaseStart  time at which the phase started
+	 * @return time at which the phase completed, and so the next one started
+	 */
+	private long phaseCompleted(RatingPeriodListener listener, RatingPeriodListener.Phase phase, int players, long phaseStart) {
+		if ( listener == null ) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		listener.phaseCompleted(ratingPeriod, phase, players, now - phaseStart);
+		return now;
 	}
+
 	
+	private void periodCompleted(RatingPeriodListener listener, long start, SolverStatistics statistics) {
+		if ( listener != null ) {
+			// report the number of the period just completed
+			listener.periodCompleted(ratingPeriod - 1, System.nanoTime() - start, statistics);
+		}
+	}
+
 	
 	/**
-	 * This is the first sub-function of step 3 of Glickman's paper.
+	 * With lazy inactivity, players who did not compete are left untouched by a rating period.
 	 * 
-	 * @param deviation
-	 * @return
+	 * @param results
+	 * @return the players whose ratings will be calculated
 	 */
-	private double g(double deviation) {
-		return 1.0 / ( Math.sqrt( 1.0 + ( 3.0 * Math.pow(deviation, 2) / Math.pow(Math.PI,2) )));
+	private Collection<Rating> getPlayersToRate(RatingPeriodResults results) {
+		return lazyInactivity ? results.getPlayersWithResults() : results.getParticipants();
 	}
-	
+
 	
 	/**
-	 * This is the second sub-function of step 3 of Glickman's paper.
+	 * Apply the increase in deviation from step 6 for each of the rating periods that
+	 * a player has missed since they were last rated.
 	 * 
-	 * @param playerRating
-	 * @param opponentRating
-	 * @param opponentDeviation
-	 * @return
+	 * @param player
 	 */
-	private double E(double playerRating, double opponentRating, double opponentDeviation) {
-		return 1.0 / (1.0 + Math.exp( -1.0 * g(opponentDeviation) * ( playerRating - opponentRating )));
+	void applyInactivity(Rating player) {
+		int missedPeriods = ratingPeriod - player.getLastRatedPeriod();
+		
+		if ( missedPeriods > 0 ) {
+			// versioned for the period being calculated, so that snapshots of the current period are unaffected
+			player.setGlicko2RatingDeviation(
+					calculateNewRD(player.getGlicko2RatingDeviation(), player.getVolatility(), missedPeriods),
+					ratingPeriod + 1);
+			player.setLastRatedPeriod(ratingPeriod);
+		}
 	}
-	
+
 	
 	/**
-	 * This is the main function in step 3 of Glickman's paper.
+	 * Calculate a participant's new rating into the working area of their Rating object.
 	 * 
 	 * @param player
-	 * @param results
-	 * @return
+	 * @param results the player's results for the rating period (may be empty)
+	 * @param rankedResults the player's free-for-all matches for the rating period (may be empty)
+	 * @param statistics receives the work done by the volatility solver
+	 * @param listener told of the player's new rating (may be null)
+	 */
+	void calculateWorkingRating(Rating player, List<Result> results, List<RankedResult> rankedResults,
+			SolverStatistics statistics, RatingPeriodListener listener) {
+		int iterations = 0;
+		boolean converged = true;
+		int games = 0;
+		
+		if ( results.size() > 0 || rankedResults.size() > 0 ) {
+			games = calculateNewRating(player, results, rankedResults, statistics);
+			iterations = statistics.getLastIterations();
+			converged = statistics.isLastConverged();
+		} else {
+			// if a player does not compete during the rating period, then only Step 6 applies.
+			// the player's rating and volatility parameters remain the same but deviation increases
+			player.setWorkingRating(player.getGlicko2Rating());
+			player.setWorkingRatingDeviation(calculateNewRD(player.getGlicko2RatingDeviation(), player.getVolatility()));
+			player.setWorkingVolatility(player.getVolatility());
+		}
+		
+		player.setLastRatedPeriod(ratingPeriod + 1);
+		
+		if ( listener != null ) {
+			listener.playerRated(player, games, iterations, converged,
+					( player.getWorkingRating() - player.getGlicko2Rating() ) * MULTIPLIER);
+		}
+	}
+
+	
+	private enum Phase { APPLY_INACTIVITY, CALCULATE, FINALISE }
+	
+	/**
+	 * Splits a range of participants in half until it is small enough to process directly,
+	 * then applies one phase of the rating period update to the players in it.
 	 */
-	private double v(Rating player, List<Result> results) {
-		double v = 0.0;
+	private class RatingUpdateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 512;
+		
+		private final Phase phase;
+		private final RatingPeriodResults results;
+		private final Rating[] players;
+		private final int from;
+		private final int to;
+		private final SolverStatistics statistics; // shared by all the tasks of a phase, so only updated under its lock
+		private final RatingPeriodListener listener;
 		
-		for ( Result result: results ) {
-			v = v + (
-					( Math.pow( g(result.getOpponent(player).getGlicko2RatingDeviation()), 2) )
-					* E(player.getGlicko2Rating(),
-							result.getOpponent(player).getGlicko2Rating(),
-							result.getOpponent(player).getGlicko2RatingDeviation())
-					* ( 1.0 - E(player.getGlicko2Rating(),
-							result.getOpponent(player).getGlicko2Rating(),
-							result.getOpponent(player).getGlicko2RatingDeviation())
-					));
+		RatingUpdateTask(Phase phase, RatingPeriodResults results, Rating[] players, int from, int to,
+				SolverStatistics statistics, RatingPeriodListener listener) {
+			this.phase = phase;
+			this.results = results;
+			this.players = players;
+			this.from = from;
+			this.to = to;
+			this.statistics = statistics;
+			this.listener = listener;
 		}
 		
-		return Math.pow(v, -1);
+		@Override
+		protected void compute() {
+			if ( to - from <= THRESHOLD ) {
+				SolverStatistics localStatistics = new SolverStatistics();
+				
+				for ( int i = from; i < to; i++ ) {
+					switch ( phase ) {
+					case APPLY_INACTIVITY:
+						applyInactivity(players[i]);
+						break;
+					case CALCULATE:
+						calculateWorkingRating(players[i], results.getGatheredResults(players[i]), results.getGatheredRankedResults(players[i]),
+								localStatistics, listener);
+						break;
+					case FINALISE:
+						players[i].finaliseRating();
+						break;
+					}
+				}
+				
+				if ( statistics != null ) {
+					synchronized ( statistics ) {
+						statistics.add(localStatistics);
+					}
+				}
+			} else {
+				int mid = ( from + to ) >>> 1;
+				invokeAll(
+						new RatingUpdateTask(phase, results, players, from, mid, statistics, listener),
+						new RatingUpdateTask(phase, results, players, mid, to, statistics, listener));
+			}
+		}
 	}
+
 	
+	/**
+	 * This is the function processing described in steps 3 to 7 of Glickman's paper.
+	 *  
+	 * @param player
+	 * @param results
+	 * @param rankedResults
+	 * @param statistics
+	 * @return the number of games covered by the results
+	 */
+	private int calculateNewRating(Rating player, List<Result> results, List<RankedResult> rankedResults, SolverStatistics statistics) {
+		double mu = player.getGlicko2Rating();
+		RatingWorkings workings = new RatingWorkings();
+		
+		addResults(player, mu, results, 0, rankedResults, 0, workings);
+		calculateNewRating(mu, player.getGlicko2RatingDeviation(), player.getVolatility(), workings, statistics);
+
+		// note that the newly calculated rating values are stored in a "working" area in the Rating object
+		// this avoids us attempting to calculate subsequent participants' ratings against a moving target
+		player.setWorkingVolatility(workings.volatility);
+		player.setWorkingRating(workings.rating);
+		player.setWorkingRatingDeviation(workings.ratingDeviation);
+		player.setWorkingNumberOfResults(workings.games);
+		
+		return workings.games;
+	}
 	
 	/**
-	 * This is a formula as per step 4 of Glickman's paper.
+	 * Steps 3 and 4 of Glickman's paper - a single pass over a player's results, from the given positions
+	 * onwards, evaluating g() and E() once for each of them and adding them into the running totals.
 	 * 
 	 * @param player
+	 * @param mu the player's rating (Glicko2 scale)
 	 * @param results
-	 * @return delta
+	 * @param fromResult index of the first of the results to add
+	 * @param rankedResults
+	 * @param fromRankedResult index of the first of the ranked results to add
+	 * @param workings the running totals
 	 */
-	private double delta(Rating player, List<Result> results) {
-		return v(player, results) * outcomeBasedRating(player, results);
+	private void addResults(Rating player, double mu, List<Result> results, int fromResult,
+			List<RankedResult> rankedResults, int fromRankedResult, RatingWorkings workings) {
+		// an aggregated result stands for a number of games against the same opponent, so is weighted by it
+		for ( int i = fromResult; i < results.size(); i++ ) {
+			Result result = results.get(i);
+			Rating opponent = result.getOpponent(player);
+			int n = result.getNumberOfGames();
+			double g = g(getCurrentGlicko2RatingDeviation(opponent));
+			double e = expectedScore(mu, opponent.getGlicko2Rating(), g);
+			
+			if ( n == 1 ) {
+				workings.vSum += g * g * e * ( 1.0 - e );
+				workings.outcomeSum += g * ( result.getScore(player) - e );
+			} else {
+				workings.vSum += n * ( g * g * e * ( 1.0 - e ) );
+				workings.outcomeSum += g * ( result.getTotalScore(player) - ( n * e ) );
+			}
+			workings.games += n;
+		}
+		
+		// a free-for-all match is a game against each of the other players, taken straight from the finishing order
+		for ( int i = fromRankedResult; i < rankedResults.size(); i++ ) {
+			RankedResult result = rankedResults.get(i);
+			int self = result.indexOf(player);
+			
+			for ( int j = 0; j < result.getNumberOfPlayers(); j++ ) {
+				if ( j == self ) {
+					continue;
+				}
+				Rating opponent = result.getPlayer(j);
+				double g = g(getCurrentGlicko2RatingDeviation(opponent));
+				double e = expectedScore(mu, opponent.getGlicko2Rating(), g);
+				
+				workings.vSum += g * g * e * ( 1.0 - e );
+				workings.outcomeSum += g * ( result.getScore(self, j) - e );
+			}
+			workings.games += result.getNumberOfPlayers() - 1;
+		}
 	}
 	
+	/**
+	 * Steps 5 to 7 of Glickman's paper, from the running totals of steps 3 and 4 into the new rating
+	 * held alongside them.
+	 * 
+	 * @param mu     player's rating (Glicko2 scale)
+	 * @param phi    player's rating deviation (Glicko2 scale)
+	 * @param sigma  player's volatility
+	 * @param workings the running totals, which receive the new rating
+	 * @param statistics receives the work done by the volatility solver
+	 */
+	private void calculateNewRating(double mu, double phi, double sigma, RatingWorkings workings, SolverStatistics statistics) {
+		double v = 1.0 / workings.vSum;
+		double delta = v * workings.outcomeSum;
+		
+		// step 5
+		workings.volatility = calculateNewVolatility(phi, sigma, delta, v, statistics);
+
+		// Step 6
+		double phiStar = calculateNewRD( phi, workings.volatility );
+		
+		// Step 7
+		workings.ratingDeviation = 1.0 / Math.sqrt(( 1.0 / ( phiStar * phiStar )) + ( 1.0 / v ));
+		workings.rating = mu + ( workings.ratingDeviation * workings.ratingDeviation * workings.outcomeSum );
+	}
 	
 	/**
-	 * This is a formula as per step 4 of Glickman's paper.
+	 * Steps 3 to 7 of Glickman's paper for a player in an open rating period, without touching the player's
+	 * rating. The sums from steps 3 and 4 are carried over from the previous call, so only the results added
+	 * since then are evaluated.
 	 * 
 	 * @param player
-	 * @param results
-	 * @return expected rating based on game outcomes
+	 * @param provisional the player's running totals
+	 * @param results all of the player's results so far in the rating period
+	 * @param rankedResults all of the player's free-for-all matches so far in the rating period
+	 * @return the player's would-be rating
 	 */
-	private double outcomeBasedRating(Rating player, List<Result> results) {
-		double outcomeBasedRating = 0;
+	RatingState calculateProvisionalRating(Rating player, ProvisionalRating provisional,
+			List<Result> results, List<RankedResult> rankedResults) {
+		provisional.validate(this, ratingPeriod, player.getState());
+		if ( provisional.estimate != null
+				&& provisional.results == results.size() && provisional.rankedResults == rankedResults.size() ) {
+			return provisional.estimate;
+		}
+		
+		double mu = player.getGlicko2Rating();
+		double phi = getCurrentGlicko2RatingDeviation(player);
+		double sigma = player.getVolatility();
+		
+		addResults(player, mu, results, provisional.results, rankedResults, provisional.rankedResults, provisional);
+		provisional.results = results.size();
+		provisional.rankedResults = rankedResults.size();
 		
-		for ( Result result: results ) {
-			outcomeBasedRating = outcomeBasedRating
-					+ ( g(result.getOpponent(player).getGlicko2RatingDeviation())
-						* ( result.getScore(player) - E(
-								player.getGlicko2Rating(),
-								result.getOpponent(player).getGlicko2Rating(),
-								result.getOpponent(player).getGlicko2RatingDeviation() ))
-				);
+		if ( provisional.games > 0 ) {
+			calculateNewRating(mu, phi, sigma, provisional, new SolverStatistics());
+		} else {
+			// only step 6 applies, as at the end of a period without results
+			provisional.rating = mu;
+			provisional.ratingDeviation = calculateNewRD( phi, sigma );
+			provisional.volatility = sigma;
 		}
 		
-		return outcomeBasedRating;
+		provisional.estimate = new RatingState(
+				convertRatingToOriginalGlickoScale(provisional.rating),
+				convertRatingDeviationToOriginalGlickoScale(provisional.ratingDeviation),
+				provisional.volatility,
+				player.getNumberOfResults() + provisional.games,
+				ratingPeriod + 1,
+				null);
+		
+		return provisional.estimate;
+	}
+	
+	/**
+	 * This is the iterative algorithm described in step 5 of Glickman's paper, carried out by the calculator's volatility solver.
+	 * 
+	 * @param phi    player's rating deviation (Glicko2 scale)
+	 * @param sigma  player's volatility
+	 * @param delta  estimated improvement in rating, from step 4
+	 * @param v      estimated variance of the rating based on game outcomes, from step 3
+	 * @param statistics receives the work done by the solver
+	 * @return new volatility
+	 */
+	double calculateNewVolatility(double phi, double sigma, double delta, double v, SolverStatistics statistics) {
+		return volatilitySolver.solve(phi, sigma, delta, v, tau, statistics);
 	}
 	
 	
+	/**
+	 * This is the first sub-function of step 3 of Glickman's paper.
+	 * 
+	 * @param deviation
+	 * @return
+	 */
+	static double g(double deviation) {
+		return 1.0 / ( Math.sqrt( 1.0 + ( 3.0 * ( deviation * deviation ) / ( Math.PI * Math.PI ) )));
+	}
+	
+	
+	/**
+	 * This is the second sub-function of step 3 of Glickman's paper.
+	 * 
+	 * @param playerRating
+	 * @param opponentRating
+	 * @param opponentDeviation
+	 * @return
+	 */
+	static double E(double playerRating, double opponentRating, double opponentDeviation) {
+		return expectedScore(playerRating, opponentRating, g(opponentDeviation));
+	}
+	
+	
+	/**
+	 * As {@link #E(double, double, double)}, but taking g() of the opponent's deviation, where the
+	 * caller has already calculated it.
+	 * 
+	 * @param playerRating
+	 * @param opponentRating
+	 * @param opponentG
+	 * @return
+	 */
+	static double expectedScore(double playerRating, double opponentRating, double opponentG) {
+		return 1.0 / (1.0 + Math.exp( -1.0 * opponentG * ( playerRating - opponentRating )));
+	}
+	
 	/**
 	 * This is the formula defined in step 6. It is also used for players
 	 * who have not competed during the rating period.
@@ -250,8 +533,26 @@ public class RatingCalculator {
 	 * @param sigma
 	 * @return new rating deviation
 	 */
-	private double calculateNewRD(double phi, double sigma) {
-		return Math.sqrt( Math.pow(phi, 2) + Math.pow(sigma, 2) );
+	static double calculateNewRD(double phi, double sigma) {
+		return Math.sqrt( phi * phi + sigma * sigma );
+	}
+
+	
+	/**
+	 * Applies the formula defined in step 6 for each of a number of rating periods
+	 * in which a player has not competed.
+	 * 
+	 * @param phi
+	 * @param sigma
+	 * @param periods
+	 * @return new rating deviation
+	 */
+	static double calculateNewRD(double phi, double sigma, int periods) {
+		if ( periods <= 0 ) {
+			return phi;
+		}
+		
+		return Math.sqrt( phi * phi + ( periods * ( sigma * sigma ) ));
 	}
 
 	
@@ -309,9 +610,199 @@ public class RatingCalculator {
 	}
 
 	
+	/**
+	 * @return tau, the constraint on changes in volatility over time
+	 */
+	public double getTau() {
+		return tau;
+	}
+
+	
 	public double getDefaultRatingDeviation() {
 		return DEFAULT_DEVIATION;
 	}
+
+
+	
+	/**
+	 * Return a player's rating deviation, including the increase for any rating periods
+	 * missed since they were last rated when lazy inactivity is in use. This is the deviation
+	 * that the library's own readers (the rank index, match predictor and provisional ratings)
+	 * work from; {@link Rating#getRatingDeviation()} only covers the periods the player was rated in.
+	 * 
+	 * @param player
+	 * @return rating deviation in Glicko scale
+	 */
+	public double getCurrentRatingDeviation(Rating player) {
+		if ( ! lazyInactivity || player.getLastRatedPeriod() >= ratingPeriod ) {
+			return player.getRatingDeviation();
+		}
+		
+		return convertRatingDeviationToOriginalGlickoScale(
+				calculateNewRD(
+						player.getGlicko2RatingDeviation(),
+						player.getVolatility(),
+						ratingPeriod - player.getLastRatedPeriod()));
+	}
+
+	
+	/**
+	 * As {@link #getCurrentRatingDeviation(Rating)}, in Glicko2 scale. A player who is up to date is
+	 * read straight from their rating, without a round trip between the scales, so that steps 3 and 4
+	 * see exactly the value that was stored.
+	 * 
+	 * @param player
+	 * @return rating deviation in Glicko2 scale
+	 */
+	private double getCurrentGlicko2RatingDeviation(Rating player) {
+		if ( ! lazyInactivity || player.getLastRatedPeriod() >= ratingPeriod ) {
+			return player.getGlicko2RatingDeviation();
+		}
+		
+		return convertRatingDeviationToGlicko2Scale(getCurrentRatingDeviation(player));
+	}
+
+	
+	/**
+	 * <p>Estimate the rating that a player would have if the rating period were closed now, from the
+	 * results added to the resultset so far. Nothing is changed, either in the player's rating or in the
+	 * calculation made by {@link #updateRatings(RatingPeriodResults)} at the end of the rating period.</p>
+	 * <p>The workings are cached against the resultset, so asking again after more results have been added
+	 * only evaluates the new results, and asking again with none added costs a map lookup. The estimate
+	 * assumes that the ratings of the player and their opponents stay as they are until the period closes;
+	 * it is recalculated from scratch if the player's own rating is changed.</p>
+	 * 
+	 * @param player
+	 * @param results the open rating period's results
+	 * @return the provisional rating, versioned with the rating period it would be published for
+	 */
+	public RatingState getProvisionalRating(Rating player, RatingPeriodResults results) {
+		return results.getProvisionalRating(player, this);
+	}
+
+	
+	/**
+	 * Return a consistent view of every player's rating as at the end of the most recent rating period,
+	 * which is unaffected by a rating period that is being calculated or finalised.
+	 * 
+	 * @return the latest published snapshot
+	 */
+	public RatingSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	
+	/**
+	 * @return the number of rating periods processed by this calculator
+	 */
+	public int getRatingPeriod() {
+		return ratingPeriod;
+	}
+
+	
+	/**
+	 * Set the number of rating periods processed, when restoring the calculator from a checkpoint.
+	 * 
+	 * @param ratingPeriod
+	 */
+	void setRatingPeriod(int ratingPeriod) {
+		this.ratingPeriod = ratingPeriod;
+		this.snapshot = new RatingSnapshot(ratingPeriod);
+	}
+
+	
+	/**
+	 * @return a new calculator with the same tau, default volatility, volatility solver and handling of
+	 * inactivity as this one, for scratch calculations that must give the same ratings
+	 */
+	RatingCalculator copySettings() {
+		RatingCalculator copy = new RatingCalculator(defaultVolatility, tau);
+		copy.volatilitySolver = volatilitySolver;
+		copy.lazyInactivity = lazyInactivity;
+		return copy;
+	}
+
+	
+	public VolatilitySolver getVolatilitySolver() {
+		return volatilitySolver;
+	}
+
+	
+	/**
+	 * Set the algorithm used to find each player's new volatility in step 5. By default this is a
+	 * {@link NewtonVolatilitySolver}; {@link IllinoisVolatilitySolver} follows Glickman's paper to the letter.
+	 * 
+	 * @param volatilitySolver
+	 */
+	public void setVolatilitySolver(VolatilitySolver volatilitySolver) {
+		this.volatilitySolver = volatilitySolver;
+	}
+
+	
+	/**
+	 * @return the work done by the volatility solver in the most recent rating period
+	 */
+	public SolverStatistics getSolverStatistics() {
+		return solverStatistics;
+	}
+
+	
+	public RatingRankIndex getRankIndex() {
+		return rankIndex;
+	}
+
+	
+	/**
+	 * Set an index to be kept up to date with each player's new rating as rating periods are finalised,
+	 * or null (the default) for none. Players only enter the index once they have been rated, and its
+	 * deviation threshold is applied to their current deviation, as given by {@link #getCurrentRatingDeviation(Rating)}.
+	 * 
+	 * @param rankIndex
+	 */
+	public void setRankIndex(RatingRankIndex rankIndex) {
+		if ( this.rankIndex != null ) {
+			this.rankIndex.setRatingSystem(null);
+		}
+		if ( rankIndex != null ) {
+			rankIndex.setRatingSystem(this);
+		}
+		this.rankIndex = rankIndex;
+	}
+
+	
+	public RatingPeriodListener getListener() {
+		return listener;
+	}
+
+	
+	/**
+	 * Set a listener to be told of the timings and counts of each rating period, or null (the default) for none.
+	 * 
+	 * @param listener
+	 */
+	public void setListener(RatingPeriodListener listener) {
+		this.listener = listener;
+	}
+
+	
+	public boolean isLazyInactivity() {
+		return lazyInactivity;
+	}
+
+	
+	/**
+	 * <p>With lazy inactivity, participants who do not compete during a rating period are not touched
+	 * when it is closed. Instead, the increase in deviation for every period they missed is applied in one go
+	 * when they next compete, and can be seen beforehand through {@link #getCurrentRatingDeviation(Rating)}.</p>
+	 * <p>This gives the same ratings as carrying every player in the resultset's participants, but idle
+	 * players cost nothing at the end of a rating period. Note that every call to updateRatings then counts
+	 * as a rating period, so one calculator should be used per sequence of rating periods.</p>
+	 * 
+	 * @param lazyInactivity
+	 */
+	public void setLazyInactivity(boolean lazyInactivity) {
+		this.lazyInactivity = lazyInactivity;
+	}
 }
 
 
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes and reads a binary snapshot of a calculator's rating period and its players' ratings, and
+ * recovers a rating system from its latest snapshot and {@link ResultLog}.
+ *
+ * <p>Take a checkpoint between rating periods, once updateRatings has returned. The snapshot is written to
+ * a temporary file which then replaces the previous one in a single step, so a crash while writing leaves
+ * the previous checkpoint intact. The snapshot ends with a checksum of its contents. The players' values are
+ * held as their Ratings hold them, so that they are read back exactly.</p>
+ *
+ * <p>Given the result log, the checkpoint also holds the offset in the log at which the next rating period's
+ * records start, so that recovery does not have to replay the rating periods that the checkpoint already covers.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingCheckpoint {
+
+	private static final int MAGIC = 0x476c6b43; // "GlkC"
+	private static final int FORMAT_VERSION = 3;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private RatingCheckpoint() {}
+
+
+	/**
+	 * Write a checkpoint of the calculator's rating period and the given players' ratings.
+	 *
+	 * @param fileName
+	 * @param ratingSystem
+	 * @param players
+	 * @throws IOException
+	 */
+	public static void write(String fileName, RatingCalculator ratingSystem, Collection<Rating> players) throws IOException {
+		write(fileName, ratingSystem, players, null);
+	}
+
+
+	/**
+	 * Write a checkpoint of the calculator's rating period and the given players' ratings, along with where
+	 * the calculator's open rating period starts in the result log. The log's most recent marker must be the one
+	 * written for the rating period just calculated; otherwise recovery will read the whole log. Once the
+	 * checkpoint is written, the log releases the Rating objects it holds (see {@link ResultLog#releasePlayers()}).
+	 *
+	 * @param fileName
+	 * @param ratingSystem
+	 * @param players
+	 * @param resultLog     the log that the rating periods have been recorded in (may be null)
+	 * @throws IOException
+	 */
+	public static void write(String fileName, RatingCalculator ratingSystem, Collection<Rating> players,
+			ResultLog resultLog) throws IOException {
+		long logOffset = 0;
+		if ( resultLog != null && resultLog.getLastClosedPeriod() == ratingSystem.getRatingPeriod() - 1 ) {
+			logOffset = resultLog.getOpenPeriodOffset();
+		}
+
+		File target = new File(fileName);
+		File temp = new File(fileName + ".tmp");
+		FileOutputStream file = new FileOutputStream(temp);
+		CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_SIZE), new CRC32());
+		DataOutputStream out = new DataOutputStream(checked);
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(ratingSystem.getRatingPeriod());
+			out.writeLong(logOffset);
+			out.writeInt(players.size());
+
+			for ( Rating player : players ) {
+				byte[] uid = player.getUid().getBytes(UTF8);
+				out.writeInt(uid.length);
+				out.write(uid);
+				out.writeDouble(player.getRating());
+				out.writeDouble(player.getRatingDeviation());
+				out.writeDouble(player.getVolatility());
+				out.writeInt(player.getNumberOfResults());
+				out.writeInt(player.getLastRatedPeriod());
+			}
+
+			out.writeLong(checked.getChecksum().getValue());
+			out.flush();
+			file.getChannel().force(true);
+		} finally {
+			out.close();
+		}
+
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if ( resultLog != null ) {
+			resultLog.releasePlayers();
+		}
+	}
+
+
+	/**
+	 * Read a checkpoint, setting the calculator's rating period and returning the players' ratings.
+	 *
+	 * @param fileName
+	 * @param ratingSystem
+	 * @return players by uid, in the order in which they were written
+	 * @throws IOException if the file cannot be read, or is not an intact checkpoint
+	 */
+	public static Map<String, Rating> read(String fileName, RatingCalculator ratingSystem) throws IOException {
+		return read(fileName, ratingSystem, new long[1]);
+	}
+
+
+	/**
+	 * @param logOffset  receives the offset in the result log at which the checkpoint's rating period starts
+	 */
+	private static Map<String, Rating> read(String fileName, RatingCalculator ratingSystem, long[] logOffset) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(
+				new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE), new CRC32());
+		DataInputStream in = new DataInputStream(checked);
+
+		try {
+			if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+				throw new IOException(fileName + " is not a rating checkpoint");
+			}
+			int ratingPeriod = in.readInt();
+			long offset = in.readLong();
+			int size = in.readInt();
+			Map<String, Rating> players = new LinkedHashMap<String, Rating>(size * 4 / 3 + 1);
+
+			for ( int i = 0; i < size; i++ ) {
+				byte[] uid = new byte[in.readInt()];
+				in.readFully(uid);
+
+				Rating player = new Rating(new String(uid, UTF8), ratingSystem, in.readDouble(), in.readDouble(), in.readDouble());
+				player.incrementNumberOfResults(in.readInt());
+				player.setLastRatedPeriod(in.readInt());
+				players.put(player.getUid(), player);
+			}
+
+			long checksum = checked.getChecksum().getValue();
+			if ( in.readLong() != checksum ) {
+				throw new IOException(fileName + " is corrupt");
+			}
+
+			ratingSystem.setRatingPeriod(ratingPeriod);
+			logOffset[0] = offset;
+			return players;
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * <p>Recover a rating system after a crash: load the latest checkpoint (if there is one), then replay the
+	 * result log on top of it.</p>
+	 * <p>Closed rating periods logged since the checkpoint are calculated again, and the results of the open
+	 * period are returned so that it can carry on. If the checkpoint was written with the log, replay starts from
+	 * where the checkpoint left off. Without lazy inactivity, every player in the checkpoint is made a participant
+	 * of the open period, as they would have been in the resultset before the crash.</p>
+	 *
+	 * @param checkpointFileName
+	 * @param logFileName
+	 * @param ratingSystem        a calculator configured as before the crash
+	 * @param players             receives the recovered players, by uid
+	 * @return the resultset for the open rating period
+	 * @throws IOException
+	 */
+	public static RatingPeriodResults recover(String checkpointFileName, String logFileName,
+			RatingCalculator ratingSystem, Map<String, Rating> players) throws IOException {
+		RatingPeriodResults results = new RatingPeriodResults();
+		long[] logOffset = new long[1];
+
+		if ( new File(checkpointFileName).exists() ) {
+			players.putAll(read(checkpointFileName, ratingSystem, logOffset));
+
+			if ( ! ratingSystem.isLazyInactivity() ) {
+				for ( Rating player : players.values() ) {
+					results.addParticipants(player);
+				}
+			}
+		}
+
+		if ( new File(logFileName).exists() ) {
+			ResultLog.replay(logFileName, ratingSystem, players, results, logOffset[0]);
+		}
+
+		return results;
+	}
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps the results and ratings of the rating periods closed by a calculator, so that a result which arrives
+ * after its rating period has closed, or which has to be voided, can be put right without recalculating
+ * whole rating periods.
+ *
+ * <p>The calculator must use lazy inactivity (see {@link RatingCalculator#setLazyInactivity(boolean)}), under
+ * which a player's rating only changes in the rating periods in which they compete. For each rating period the
+ * history therefore only records the players with results: their results, and their ratings before and after.</p>
+ *
+ * <p>A correction recalculates the players in the changed results, against the ratings that they and their
+ * opponents had going into the rating period. Wherever a player's new rating differs from the one recorded,
+ * the players they met in the following rating periods are recalculated in turn, until the changes no longer
+ * carry or the latest rating period has been reached. The current ratings of the players affected are then
+ * brought into line. The recalculation uses the calculator's own settings, so the ratings are the same as if the
+ * corrected results had been there all along.</p>
+ *
+ * <p>Rating periods must be closed through {@link #updateRatings(RatingPeriodResults)} rather than the
+ * calculator itself. This class is not thread-safe.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingHistory {
+
+	private final RatingCalculator ratingSystem;
+	private final int firstPeriod;
+	private int retainedFrom;
+	private final List<Map<Rating, Entry>> periods = new ArrayList<Map<Rating, Entry>>(); // the players with results in each rating period
+	private final Map<Rating, TreeMap<Integer, Entry>> histories = new HashMap<Rating, TreeMap<Integer, Entry>>(); // each player's rating periods with results
+
+
+	/**
+	 * Start recording the rating periods closed by a calculator, from its current rating period onwards.
+	 *
+	 * @param ratingSystem  a calculator using lazy inactivity
+	 */
+	public RatingHistory(RatingCalculator ratingSystem) {
+		if ( ! ratingSystem.isLazyInactivity() ) {
+			throw new IllegalArgumentException("Rating history needs a calculator using lazy inactivity");
+		}
+
+		this.ratingSystem = ratingSystem;
+		this.firstPeriod = ratingSystem.getRatingPeriod();
+		this.retainedFrom = firstPeriod;
+	}
+
+
+	/**
+	 * Record a rating period's results and the ratings of its players before and after, then close it
+	 * by calling {@link RatingCalculator#updateRatings(RatingPeriodResults)}. No results may be added
+	 * to the resultset while this is in progress.
+	 *
+	 * @param results
+	 */
+	public void updateRatings(RatingPeriodResults results) {
+		if ( ratingSystem.getRatingPeriod() != getRatingPeriod() ) {
+			throw new IllegalStateException("Rating period " + getRatingPeriod() + " was closed without being recorded");
+		}
+
+		int period = getRatingPeriod();
+		Map<Rating, Entry> entries = new HashMap<Rating, Entry>();
+
+		for ( Rating player : results.getPlayersWithResults() ) {
+			Entry entry = new Entry(new Position(player.getState(), player.getLastRatedPeriod()));
+			entry.results = results.getGatheredResults(player);
+			entry.rankedResults = results.getGatheredRankedResults(player);
+			entries.put(player, entry);
+		}
+
+		ratingSystem.updateRatings(results);
+
+		for ( Map.Entry<Rating, Entry> entry : entries.entrySet() ) {
+			entry.getValue().after = entry.getKey().getState();
+			history(entry.getKey()).put(period, entry.getValue());
+		}
+		periods.add(entries);
+	}
+
+
+	/**
+	 * Add a result to a rating period that has already been closed, and recalculate the ratings it affects.
+	 *
+	 * @param ratingPeriod
+	 * @param result
+	 * @return the number of ratings recalculated, over all the rating periods that the correction carried into
+	 */
+	public int addResult(int ratingPeriod, Result result) {
+		Map<Rating, Entry> entries = getPeriod(ratingPeriod);
+		List<Rating> players = new ArrayList<Rating>();
+		players.add(result.getPlayer1());
+		players.add(result.getPlayer2());
+
+		for ( Rating player : players ) {
+			Entry entry = entries.get(player);
+
+			if ( entry == null ) {
+				// the player had no results in the rating period, so their rating going into it is the one they carried through it
+				entry = new Entry(positionAt(player, ratingPeriod, Collections.<Rating, Position>emptyMap()));
+				entry.results = new ArrayList<Result>();
+				entry.rankedResults = new ArrayList<RankedResult>();
+				entries.put(player, entry);
+				history(player).put(ratingPeriod, entry);
+			}
+			entry.results.add(result);
+		}
+
+		return recalculate(ratingPeriod, players);
+	}
+
+
+	/**
+	 * Remove a result from a rating period that has already been closed, and recalculate the ratings it affects.
+	 * The result removed is the first of the rating period's results between the same players, in the same
+	 * order, with the same number of games and score.
+	 *
+	 * @param ratingPeriod
+	 * @param result
+	 * @return the number of ratings recalculated, over all the rating periods that the correction carried into
+	 * @throws IllegalArgumentException if the rating period has no such result
+	 */
+	public int voidResult(int ratingPeriod, Result result) {
+		Map<Rating, Entry> entries = getPeriod(ratingPeriod);
+		Rating player1 = result.getPlayer1();
+		Rating player2 = result.getPlayer2();
+		Entry player1Entry = entries.get(player1);
+		Result recorded = null;
+
+		if ( player1Entry != null ) {
+			for ( Result candidate : player1Entry.results ) {
+				if ( candidate.getPlayer1() == player1 && candidate.getPlayer2() == player2
+						&& candidate.getNumberOfGames() == result.getNumberOfGames()
+						&& candidate.getTotalScore(player1) == result.getTotalScore(player1) ) {
+					recorded = candidate;
+					break;
+				}
+			}
+		}
+		if ( recorded == null ) {
+			throw new IllegalArgumentException("Rating period " + ratingPeriod + " has no such result");
+		}
+
+		removeResult(player1Entry.results, recorded);
+		removeResult(entries.get(player2).results, recorded);
+
+		List<Rating> players = new ArrayList<Rating>();
+		players.add(player1);
+		players.add(player2);
+		return recalculate(ratingPeriod, players);
+	}
+
+
+	private static void removeResult(List<Result> results, Result result) {
+		for ( int i = 0; i < results.size(); i++ ) {
+			if ( results.get(i) == result ) {
+				results.remove(i);
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Recalculate the players in a rating period's changed results, then carry any change in their
+	 * ratings forward through the following rating periods.
+	 *
+	 * @param from     the rating period that was changed
+	 * @param players  the players in the changed results
+	 * @return the number of ratings recalculated
+	 */
+	private int recalculate(int from, List<Rating> players) {
+		Map<Rating, Position> changed = new HashMap<Rating, Position>(); // players whose ratings going into the rating period differ from those recorded
+		Map<Rating, Position> carried = new HashMap<Rating, Position>(); // changes made in the rating period, for the next one
+		Set<Rating> toRate = new HashSet<Rating>();
+		int recalculated = 0;
+
+		for ( Rating player : players ) {
+			Entry entry = getPeriod(from).get(player);
+
+			if ( entry.results.isEmpty() && entry.rankedResults.isEmpty() ) {
+				// the player no longer has any results in the rating period, so their rating is carried through it unchanged
+				getPeriod(from).remove(player);
+				history(player).remove(from);
+				carried.put(player, entry.before);
+			} else {
+				toRate.add(player);
+			}
+		}
+
+		for ( int period = from; period < getRatingPeriod(); period++ ) {
+			Map<Rating, Entry> entries = getPeriod(period);
+
+			if ( period > from ) {
+				if ( changed.isEmpty() ) {
+					break;
+				}
+
+				// a player whose rating has changed is recalculated when they next compete, along with everyone they meet
+				toRate.clear();
+				for ( Rating player : changed.keySet() ) {
+					Entry entry = entries.get(player);
+
+					if ( entry != null ) {
+						toRate.add(player);
+						addOpponents(player, entry, toRate);
+					}
+				}
+			}
+
+			if ( ! toRate.isEmpty() ) {
+				recalculate(period, entries, toRate, changed, carried);
+				recalculated += toRate.size();
+			}
+
+			for ( Map.Entry<Rating, Position> change : carried.entrySet() ) {
+				if ( change.getValue() == null ) {
+					changed.remove(change.getKey());
+				} else {
+					changed.put(change.getKey(), change.getValue());
+				}
+			}
+			carried.clear();
+		}
+
+		// bring the current ratings into line with the end of the latest rating period
+		RatingRankIndex rankIndex = ratingSystem.getRankIndex();
+		for ( Map.Entry<Rating, Position> change : changed.entrySet() ) {
+			change.getKey().correctState(change.getValue().state, change.getValue().lastRatedPeriod);
+			if ( rankIndex != null ) {
+				rankIndex.update(change.getKey());
+			}
+		}
+
+		return recalculated;
+	}
+
+
+	private static void addOpponents(Rating player, Entry entry, Set<Rating> opponents) {
+		for ( Result result : entry.results ) {
+			opponents.add(result.getOpponent(player));
+		}
+		for ( RankedResult result : entry.rankedResults ) {
+			opponents.addAll(result.getPlayers());
+		}
+	}
+
+
+	/**
+	 * Recalculate some of the players in a rating period, in the same steps as
+	 * {@link RatingCalculator#updateRatings(RatingPeriodResults)} but on stand-ins for the players, which hold
+	 * their ratings going into the rating period. Each player's results are taken in the order they were recorded,
+	 * so that a player whose rating going into the rating period is unchanged gets exactly the rating recorded.
+	 *
+	 * @param period
+	 * @param entries  the rating period's players with results
+	 * @param toRate   the players to recalculate, each of whom has results in the rating period
+	 * @param changed  the players' ratings going into the rating period, where they differ from those recorded
+	 * @param carried  receives the new ratings of the players who differ from those recorded after the rating period,
+	 *                 or null for a player whose new rating matches the one recorded
+	 */
+	private void recalculate(int period, Map<Rating, Entry> entries, Set<Rating> toRate,
+			Map<Rating, Position> changed, Map<Rating, Position> carried) {
+		RatingCalculator scratch = ratingSystem.copySettings();
+		scratch.setRatingPeriod(period);
+		Map<Rating, Rating> standIns = new HashMap<Rating, Rating>();
+		Map<Object, Object> copies = new IdentityHashMap<Object, Object>(); // each result is copied once, whoever it is reached from
+		Map<Rating, List<Result>> results = new HashMap<Rating, List<Result>>();
+		Map<Rating, List<RankedResult>> rankedResults = new HashMap<Rating, List<RankedResult>>();
+
+		for ( Rating player : toRate ) {
+			Entry entry = entries.get(player);
+			List<Result> playerResults = new ArrayList<Result>(entry.results.size());
+			List<RankedResult> playerRankedResults = new ArrayList<RankedResult>(entry.rankedResults.size());
+
+			for ( Result result : entry.results ) {
+				Result copy = (Result) copies.get(result);
+				if ( copy == null ) {
+					copy = result.withPlayers(
+							standIn(result.getPlayer1(), period, changed, standIns, scratch),
+							standIn(result.getPlayer2(), period, changed, standIns, scratch));
+					copies.put(result, copy);
+				}
+				playerResults.add(copy);
+			}
+			for ( RankedResult result : entry.rankedResults ) {
+				RankedResult copy = (RankedResult) copies.get(result);
+				if ( copy == null ) {
+					Rating[] players = new Rating[result.getNumberOfPlayers()];
+					int[] ranks = new int[players.length];
+
+					for ( int i = 0; i < players.length; i++ ) {
+						players[i] = standIn(result.getPlayer(i), period, changed, standIns, scratch);
+						ranks[i] = result.getRank(i);
+					}
+					copy = new RankedResult(players, ranks);
+					copies.put(result, copy);
+				}
+				playerRankedResults.add(copy);
+			}
+			results.put(player, playerResults);
+			rankedResults.put(player, playerRankedResults);
+		}
+
+		// every stand-in has its inactivity applied before anyone is calculated, and nobody is finalised until
+		// everyone has been calculated, as in a rating period update
+		for ( Rating standIn : standIns.values() ) {
+			scratch.applyInactivity(standIn);
+		}
+		for ( Rating player : toRate ) {
+			scratch.calculateWorkingRating(standIns.get(player), results.get(player), rankedResults.get(player),
+					new SolverStatistics(), null);
+		}
+
+		for ( Rating player : toRate ) {
+			Entry entry = entries.get(player);
+			Rating standIn = standIns.get(player);
+			RatingState recorded = entry.after;
+
+			standIn.finaliseRating();
+			entry.before = positionAt(player, period, changed);
+			entry.after = standIn.getState();
+
+			if ( recorded == null || ! sameValues(recorded, entry.after) ) {
+				carried.put(player, new Position(entry.after, standIn.getLastRatedPeriod()));
+			} else if ( changed.containsKey(player) ) {
+				carried.put(player, null);
+			}
+		}
+	}
+
+
+	private Rating standIn(Rating player, int period, Map<Rating, Position> changed, Map<Rating, Rating> standIns,
+			RatingCalculator scratch) {
+		Rating standIn = standIns.get(player);
+
+		if ( standIn == null ) {
+			Position position = positionAt(player, period, changed);
+			RatingState state = position.state;
+
+			standIn = new Rating(player.getUid(), scratch, state.getRating(), state.getRatingDeviation(), state.getVolatility());
+			standIn.incrementNumberOfResults(state.getNumberOfResults());
+			standIn.setLastRatedPeriod(position.lastRatedPeriod);
+			standIns.put(player, standIn);
+		}
+
+		return standIn;
+	}
+
+
+	/**
+	 * Find a player's rating going into a rating period.
+	 *
+	 * @param player
+	 * @param period
+	 * @param changed  ratings that differ from those recorded, which take precedence
+	 * @return the player's rating, and the rating period from which it is up to date
+	 */
+	private Position positionAt(Rating player, int period, Map<Rating, Position> changed) {
+		Position position = changed.get(player);
+		if ( position != null ) {
+			return position;
+		}
+
+		TreeMap<Integer, Entry> history = histories.get(player);
+		if ( history != null && ! history.isEmpty() ) {
+			Entry entry = history.get(period);
+			if ( entry != null ) {
+				return entry.before;
+			}
+
+			Map.Entry<Integer, Entry> earlier = history.lowerEntry(period);
+			if ( earlier != null ) {
+				return new Position(earlier.getValue().after, earlier.getKey() + 1);
+			}
+
+			// a player's rating does not change between the rating periods in which they compete
+			return history.higherEntry(period).getValue().before;
+		}
+
+		return new Position(player.getState(), player.getLastRatedPeriod());
+	}
+
+
+	private static boolean sameValues(RatingState a, RatingState b) {
+		return a.getRating() == b.getRating()
+				&& a.getRatingDeviation() == b.getRatingDeviation()
+				&& a.getVolatility() == b.getVolatility()
+				&& a.getNumberOfResults() == b.getNumberOfResults();
+	}
+
+
+	private TreeMap<Integer, Entry> history(Rating player) {
+		TreeMap<Integer, Entry> history = histories.get(player);
+
+		if ( history == null ) {
+			history = new TreeMap<Integer, Entry>();
+			histories.put(player, history);
+		}
+
+		return history;
+	}
+
+
+	private Map<Rating, Entry> getPeriod(int ratingPeriod) {
+		if ( ratingPeriod < retainedFrom || ratingPeriod >= getRatingPeriod() ) {
+			throw new IllegalArgumentException("Rating period " + ratingPeriod + " is not held in the history");
+		}
+
+		return periods.get(ratingPeriod - firstPeriod);
+	}
+
+
+	/**
+	 * Get a player's results in a rating period that has been closed, including any corrections.
+	 *
+	 * @param ratingPeriod
+	 * @param player
+	 * @return List of results
+	 */
+	public List<Result> getResults(int ratingPeriod, Rating player) {
+		Entry entry = getPeriod(ratingPeriod).get(player);
+
+		if ( entry == null ) {
+			return new ArrayList<Result>();
+		}
+
+		return new ArrayList<Result>(entry.results);
+	}
+
+
+	/**
+	 * Stop holding the rating periods before the given one, which can then no longer be corrected.
+	 *
+	 * @param ratingPeriod
+	 */
+	public void discardPeriodsBefore(int ratingPeriod) {
+		ratingPeriod = Math.min(ratingPeriod, getRatingPeriod());
+
+		for ( int period = retainedFrom; period < ratingPeriod; period++ ) {
+			for ( Rating player : periods.get(period - firstPeriod).keySet() ) {
+				TreeMap<Integer, Entry> history = histories.get(player);
+				history.remove(period);
+				if ( history.isEmpty() ) {
+					histories.remove(player);
+				}
+			}
+			periods.set(period - firstPeriod, null);
+		}
+
+		retainedFrom = Math.max(retainedFrom, ratingPeriod);
+	}
+
+
+	/**
+	 * @return the rating period that will be recorded next
+	 */
+	public int getRatingPeriod() {
+		return firstPeriod + periods.size();
+	}
+
+
+	/**
+	 * A player's rating, and the rating period from which it is up to date.
+	 */
+	private static class Position {
+		final RatingState state;
+		final int lastRatedPeriod;
+
+		Position(RatingState state, int lastRatedPeriod) {
+			this.state = state;
+			this.lastRatedPeriod = lastRatedPeriod;
+		}
+	}
+
+
+	/**
+	 * A player's results in a rating period, and their ratings before and after it.
+	 */
+	private static class Entry {
+		Position before;
+		RatingState after; // up to date from the following rating period
+		List<Result> results;
+		List<RankedResult> rankedResults;
+
+		Entry(Position before) {
+			this.before = before;
+		}
+	}
+}
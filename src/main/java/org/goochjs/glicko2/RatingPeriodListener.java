@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Receives timings and counts from a {@link RatingCalculator} as it processes each rating period.
+ *
+ * <p>When the calculator is run over a fork-join pool, {@link #playerRated(Rating, int, int, boolean, double)} is
+ * called from the pool's threads, so implementations must be thread-safe. The other methods are called
+ * from the thread that called updateRatings, apart from {@link #resultsGathered(int, long)}. With no listener
+ * set, the calculator does no timing at all.</p>
+ *
+ * <p>A listener can also be set on a resultset, with {@link RatingPeriodResults#setListener(RatingPeriodListener)},
+ * to be told of the work it does to gather in the results recorded into it.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public interface RatingPeriodListener {
+
+	/**
+	 * The stages of a rating period update.
+	 */
+	enum Phase {
+		/** gathering the players to be rated from the resultset */
+		PARTICIPANTS,
+		/** applying the deviation increase for missed periods, with lazy inactivity */
+		INACTIVITY,
+		/** calculating each player's new rating */
+		CALCULATION,
+		/** moving the new ratings into place */
+		FINALISATION
+	}
+
+
+	/**
+	 * Called as the calculator starts to process a rating period.
+	 *
+	 * @param ratingPeriod  the calculator's rating period number
+	 */
+	void periodStarted(int ratingPeriod);
+
+
+	/**
+	 * Called as each phase of the update completes.
+	 *
+	 * @param ratingPeriod
+	 * @param phase
+	 * @param players       the number of players covered by the phase
+	 * @param nanos         time taken by the phase
+	 */
+	void phaseCompleted(int ratingPeriod, Phase phase, int players, long nanos);
+
+
+	/**
+	 * Called once each player's new rating has been calculated, before it is finalised.
+	 *
+	 * @param player
+	 * @param numberOfResults   the player's results in the rating period
+	 * @param solverIterations  iterations taken to find the player's new volatility (0 if they did not compete)
+	 * @param converged         false if the solver stopped at its iteration limit, so the player's new volatility is approximate
+	 * @param ratingChange      the change in the player's rating, in Glicko scale
+	 */
+	void playerRated(Rating player, int numberOfResults, int solverIterations, boolean converged, double ratingChange);
+
+
+	/**
+	 * Called when a resultset that buffers the results recorded into it, such as a {@link ConcurrentRatingPeriodResults},
+	 * gathers them in. This happens as the players to be rated are discovered at the start of an update, and when a
+	 * provisional rating is asked for. Only resultsets that the listener has been set on call this, from whichever
+	 * thread caused the results to be gathered.
+	 *
+	 * @param results  the number of results and ranked results gathered
+	 * @param nanos    time taken to gather them
+	 */
+	void resultsGathered(int results, long nanos);
+
+
+	/**
+	 * Called once the rating period has been completed and its resultset cleared.
+	 *
+	 * @param ratingPeriod
+	 * @param nanos             time taken by the whole update
+	 * @param solverStatistics  work done by the volatility solver during the period
+	 */
+	void periodCompleted(int ratingPeriod, long nanos, SolverStatistics solverStatistics);
+}
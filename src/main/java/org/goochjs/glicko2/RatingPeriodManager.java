@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a continuous sequence of rating periods, so that results can be recorded without pause
+ * while the ratings for a closed period are being calculated.
+ *
+ * <p>Results are recorded into the open period's {@link ConcurrentRatingPeriodResults}, from any thread.
+ * Closing a period swaps in a fresh resultset in a single atomic step, and the closed resultset is
+ * handed to a background thread which runs {@link RatingCalculator#updateRatings(RatingPeriodResults)}
+ * against it. Closed periods are calculated one at a time, in the order in which they were closed, and
+ * the new ratings are only written into the players' Rating objects once a period's calculation has finished.</p>
+ *
+ * <p>Participants of a closed period are carried over into the next one, as
+ * {@link RatingPeriodResults#clear()} would do, unless the calculator uses lazy inactivity.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingPeriodManager {
+
+	private final RatingCalculator ratingSystem;
+	private final ForkJoinPool pool;
+	private final ExecutorService executor;
+	private final AtomicReference<ConcurrentRatingPeriodResults> current =
+			new AtomicReference<ConcurrentRatingPeriodResults>(new ConcurrentRatingPeriodResults());
+
+
+	/**
+	 * @param ratingSystem  calculator used to close each rating period
+	 */
+	public RatingPeriodManager(RatingCalculator ratingSystem) {
+		this(ratingSystem, null);
+	}
+
+
+	/**
+	 * @param ratingSystem  calculator used to close each rating period
+	 * @param pool          fork-join pool over which each period's calculation is spread (or null to calculate on a single thread)
+	 */
+	public RatingPeriodManager(RatingCalculator ratingSystem, ForkJoinPool pool) {
+		this.ratingSystem = ratingSystem;
+		this.pool = pool;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "glicko2-rating-period");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+
+	/**
+	 * Add a result to the open rating period. May be called from any thread.
+	 *
+	 * @param winner
+	 * @param loser
+	 */
+	public void addResult(Rating winner, Rating loser) {
+		record(new Result(winner, loser));
+	}
+
+
+	/**
+	 * Record a draw between two players in the open rating period. May be called from any thread.
+	 *
+	 * @param player1
+	 * @param player2
+	 */
+	public void addDraw(Rating player1, Rating player2) {
+		record(new Result(player1, player2, true));
+	}
+
+
+	/**
+	 * Record a series of games between two players in the open rating period. May be called from any thread.
+	 * 
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 */
+	public void addResults(Rating player1, Rating player2, int wins, int losses, int draws) {
+		record(new AggregatedResult(player1, player2, wins, losses, draws));
+	}
+	
+	
+	/**
+	 * Record a free-for-all match in the open rating period. May be called from any thread.
+	 * 
+	 * @param finishingOrder players in the order in which they finished, winner first
+	 */
+	public void addRankedResult(Rating... finishingOrder) {
+		addRankedResult(new RankedResult(finishingOrder));
+	}
+	
+	
+	/**
+	 * Record a free-for-all match in the open rating period. May be called from any thread.
+	 * 
+	 * @param result
+	 */
+	public void addRankedResult(RankedResult result) {
+		while ( ! current.get().offer(result) ) {
+			Thread.yield();
+		}
+	}
+	
+	
+	/**
+	 * Add a participant to the open rating period. May be called from any thread.
+	 *
+	 * @param rating
+	 */
+	public void addParticipants(Rating rating) {
+		current.get().addParticipants(rating);
+	}
+
+
+	private void record(Result result) {
+		// a closing period is sealed straight after the fresh one is swapped in, so a retry always finds an open period
+		while ( ! current.get().offer(result) ) {
+			Thread.yield();
+		}
+	}
+
+
+	/**
+	 * Close the open rating period and start a new one. The closed period's ratings are calculated in the background.
+	 *
+	 * @return a future which completes once the new ratings for the closed period have been written to the players
+	 */
+	public synchronized Future<RatingPeriodResults> closePeriod() {
+		final ConcurrentRatingPeriodResults next = new ConcurrentRatingPeriodResults();
+		final ConcurrentRatingPeriodResults closed = current.getAndSet(next);
+		closed.seal();
+
+		return executor.submit(new Callable<RatingPeriodResults>() {
+			@Override
+			public RatingPeriodResults call() {
+				if ( pool == null ) {
+					ratingSystem.updateRatings(closed);
+				} else {
+					ratingSystem.updateRatings(closed, pool);
+				}
+
+				if ( ! ratingSystem.isLazyInactivity() ) {
+					for ( Rating participant : closed.getParticipants() ) {
+						next.addParticipants(participant);
+					}
+				}
+
+				return closed;
+			}
+		});
+	}
+
+
+	/**
+	 * @return the resultset of the open rating period
+	 */
+	public RatingPeriodResults getCurrentResults() {
+		return current.get();
+	}
+
+
+	/**
+	 * Stop accepting closed periods. Periods that have already been closed are still calculated.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
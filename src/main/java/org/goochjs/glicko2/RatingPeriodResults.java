@@ -7,8 +7,10 @@
 package org.goochjs.glicko2;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -18,7 +20,12 @@ import java.util.Set;
  */
 public class RatingPeriodResults {
 	private List<Result> results = new ArrayList<Result>();
+	private List<RankedResult> rankedResults = new ArrayList<RankedResult>();
 	private Set<Rating> participants = new HashSet<Rating>();
+	private Map<Rating, List<Result>> resultsByPlayer = new HashMap<Rating, List<Result>>(); // index of each player's results, maintained as results are added
+	private Map<Rating, List<RankedResult>> rankedResultsByPlayer = new HashMap<Rating, List<RankedResult>>();
+	private Map<Rating, ProvisionalRating> provisionalRatings = new HashMap<Rating, ProvisionalRating>(); // built up as provisional ratings are asked for
+	private volatile RatingPeriodListener listener = null;
 
 	
 	/**
@@ -46,7 +53,7 @@ public class RatingPeriodResults {
 	public void addResult(Rating winner, Rating loser) {
 		Result result = new Result(winner, loser);
 		
-		results.add(result);
+		addResult(result);
 	}
 	
 	
@@ -59,7 +66,83 @@ public class RatingPeriodResults {
 	public void addDraw(Rating player1, Rating player2) {
 		Result result = new Result(player1, player2, true);
 		
+		addResult(result);
+	}
+	
+	
+	/**
+	 * Record a series of games between two players as a single aggregated result and add to the set.
+	 * Memory and calculation time depend on the number of distinct pairings rather than games played.
+	 * 
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 */
+	public void addResults(Rating player1, Rating player2, int wins, int losses, int draws) {
+		Result result = new AggregatedResult(player1, player2, wins, losses, draws);
+		
+		addResult(result);
+	}
+	
+	
+	/**
+	 * Add a result to the set and index it against both of its players.
+	 * 
+	 * @param result
+	 */
+	void addResult(Result result) {
 		results.add(result);
+		
+		indexResult(result.getPlayer1(), result);
+		indexResult(result.getPlayer2(), result);
+	}
+	
+	
+	private void indexResult(Rating player, Result result) {
+		List<Result> playerResults = resultsByPlayer.get(player);
+		
+		if ( playerResults == null ) {
+			playerResults = new ArrayList<Result>();
+			resultsByPlayer.put(player, playerResults);
+			participants.add(player);
+		}
+		
+		playerResults.add(result);
+	}
+	
+	
+	/**
+	 * Add a free-for-all match to the set, from its finishing order.
+	 * 
+	 * @param finishingOrder players in the order in which they finished, winner first
+	 */
+	public void addRankedResult(Rating... finishingOrder) {
+		addRankedResult(new RankedResult(finishingOrder));
+	}
+	
+	
+	/**
+	 * Add a free-for-all match to the set and index it against each of its players.
+	 * 
+	 * @param result
+	 */
+	public void addRankedResult(RankedResult result) {
+		rankedResults.add(result);
+		
+		for ( int i = 0; i < result.getNumberOfPlayers(); i++ ) {
+			Rating player = result.getPlayer(i);
+			List<RankedResult> playerResults = rankedResultsByPlayer.get(player);
+			
+			if ( playerResults == null ) {
+				playerResults = new ArrayList<RankedResult>();
+				rankedResultsByPlayer.put(player, playerResults);
+				participants.add(player);
+			}
+			
+			playerResults.add(result);
+		}
 	}
 	
 	
@@ -70,34 +153,130 @@ public class RatingPeriodResults {
 	 * @return List of results
 	 */
 	public List<Result> getResults(Rating player) {
-		List<Result> filteredResults = new ArrayList<Result>();
+		return getGatheredResults(player);
+	}
+	
+	
+	/**
+	 * Get a list of the results for a given player, for use by the calculator once the rating period's
+	 * results have been gathered. Unlike {@link #getResults(Rating)}, this does not gather in results that
+	 * a concurrent resultset has recorded since.
+	 * 
+	 * @param player
+	 * @return List of results
+	 */
+	List<Result> getGatheredResults(Rating player) {
+		List<Result> playerResults = resultsByPlayer.get(player);
 		
-		for ( Result result : results ) {
-			if ( result.participated(player) ) {
-				filteredResults.add(result);
-			}
+		if ( playerResults == null ) {
+			return new ArrayList<Result>();
+		}
+		
+		return new ArrayList<Result>(playerResults);
+	}
+
+	
+	/**
+	 * Get a list of the free-for-all matches for a given player.
+	 * 
+	 * @param player
+	 * @return List of ranked results
+	 */
+	public List<RankedResult> getRankedResults(Rating player) {
+		return getGatheredRankedResults(player);
+	}
+	
+	
+	/**
+	 * Get a list of the free-for-all matches for a given player, for use by the calculator once the rating
+	 * period's results have been gathered.
+	 * 
+	 * @param player
+	 * @return List of ranked results
+	 * @see #getGatheredResults(Rating)
+	 */
+	List<RankedResult> getGatheredRankedResults(Rating player) {
+		List<RankedResult> playerResults = rankedResultsByPlayer.get(player);
+		
+		if ( playerResults == null ) {
+			return new ArrayList<RankedResult>();
 		}
 		
-		return filteredResults;
+		return new ArrayList<RankedResult>(playerResults);
 	}
 
 	
+	/**
+	 * Bring a player's provisional rating up to date with the results added so far, folding in only those
+	 * added since it was last asked for.
+	 * 
+	 * @param player
+	 * @param ratingSystem
+	 * @return the player's would-be rating if the rating period were closed now
+	 * @see RatingCalculator#getProvisionalRating(Rating, RatingPeriodResults)
+	 */
+	RatingState getProvisionalRating(Rating player, RatingCalculator ratingSystem) {
+		ProvisionalRating provisional = provisionalRatings.get(player);
+		
+		if ( provisional == null ) {
+			provisional = new ProvisionalRating();
+			provisionalRatings.put(player, provisional);
+		}
+		
+		List<Result> playerResults = resultsByPlayer.get(player);
+		List<RankedResult> playerRankedResults = rankedResultsByPlayer.get(player);
+		
+		return ratingSystem.calculateProvisionalRating(
+				player,
+				provisional,
+				playerResults == null ? new ArrayList<Result>() : playerResults,
+				playerRankedResults == null ? new ArrayList<RankedResult>() : playerRankedResults);
+	}
+	
+	
 	/**
 	 * Get all the participants whose results are being tracked.
 	 * 
 	 * @return set of all participants covered by the resultset.
 	 */
 	public Set<Rating> getParticipants() {
-		// Run through the results and make sure all players have been pushed into the participants set.
-		for ( Result result : results ) {
-			participants.add(result.getWinner());
-			participants.add(result.getLoser());
-		}
-
+		// players are pushed into the participants set as their results are added, so there is nothing to scan here
 		return participants;
 	}
 	
 	
+	/**
+	 * Get the players who have results in the rating period.
+	 * 
+	 * @return set of players with at least one result or ranked result, which must not be modified
+	 */
+	Set<Rating> getPlayersWithResults() {
+		if ( rankedResultsByPlayer.isEmpty() ) {
+			return resultsByPlayer.keySet();
+		}
+		
+		Set<Rating> players = new HashSet<Rating>(resultsByPlayer.keySet());
+		players.addAll(rankedResultsByPlayer.keySet());
+		return players;
+	}
+	
+	
+	/**
+	 * @return the results, in the order in which they were added
+	 */
+	List<Result> results() {
+		return results;
+	}
+	
+	
+	/**
+	 * @return the free-for-all matches, in the order in which they were added
+	 */
+	List<RankedResult> rankedResults() {
+		return rankedResults;
+	}
+	
+	
 	/**
 	 * Add a participant to the rating period, e.g. so that their rating will
 	 * still be calculated even if they don't actually compete.
@@ -109,10 +288,30 @@ public class RatingPeriodResults {
 	}
 	
 	
+	public RatingPeriodListener getListener() {
+		return listener;
+	}
+	
+	
+	/**
+	 * Set a listener to be told of the work done by the resultset to gather in its results, or null
+	 * (the default) for none. A resultset which holds its results as they are added has nothing to report.
+	 * 
+	 * @param listener
+	 */
+	public void setListener(RatingPeriodListener listener) {
+		this.listener = listener;
+	}
+	
+	
 	/**
 	 * Clear the resultset.
 	 */
 	public void clear() {
 		results.clear();
+		rankedResults.clear();
+		resultsByPlayer.clear();
+		rankedResultsByPlayer.clear();
+		provisionalRatings.clear();
 	}
 }
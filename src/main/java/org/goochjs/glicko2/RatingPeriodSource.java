@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.IOException;
+
+/**
+ * Supplies archived results to a {@link HistoricalRatingEngine}, one rating period at a time, in the order
+ * in which the periods were played.
+ *
+ * <p>Players are identified by dense int ids, which must be assigned in the order in which the players
+ * first appear in the archive.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public interface RatingPeriodSource {
+
+	/**
+	 * Add the results of the next rating period to an empty resultset.
+	 *
+	 * @param results
+	 * @return false if there are no more rating periods, in which case the resultset is left empty
+	 * @throws IOException if the archive cannot be read
+	 */
+	boolean nextPeriod(ColumnarResults results) throws IOException;
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RatingPeriodListener} that keeps the timings, counts and distributions of the most recent rating period,
+ * ready to be exported to a metrics system once the period completes.
+ *
+ * <p>Distributions are held as histograms:</p>
+ * <ul>
+ * <li>results per player, in power-of-two buckets: 0, 1, 2-3, 4-7, 8-15...</li>
+ * <li>solver iterations, one bucket per iteration count up to {@link #MAX_ITERATIONS_BUCKET}, which also counts anything higher</li>
+ * <li>rating change, in buckets {@link #RATING_CHANGE_BUCKET_WIDTH} points wide from -{@link #RATING_CHANGE_RANGE}
+ *     to +{@link #RATING_CHANGE_RANGE}, with the first and last buckets also counting anything beyond</li>
+ * </ul>
+ *
+ * <p>The players whose volatility solve failed to converge are kept as well, so that they can be looked into. Set the
+ * same instance on a resultset to count the results it gathers in, and the time it takes to do so, since the start of
+ * the most recent rating period.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingPeriodStatistics implements RatingPeriodListener {
+
+	public static final int MAX_ITERATIONS_BUCKET = 63;
+	public static final int RATING_CHANGE_BUCKET_WIDTH = 10;
+	public static final int RATING_CHANGE_RANGE = 500;
+
+	private static final int RESULTS_BUCKETS = 32;
+	private static final int RATING_CHANGE_BUCKETS = 2 * RATING_CHANGE_RANGE / RATING_CHANGE_BUCKET_WIDTH;
+
+	private final LongAdder[] resultsPerPlayer = createBuckets(RESULTS_BUCKETS);
+	private final LongAdder[] solverIterations = createBuckets(MAX_ITERATIONS_BUCKET + 1);
+	private final LongAdder[] ratingChanges = createBuckets(RATING_CHANGE_BUCKETS);
+	private final LongAdder playersRated = new LongAdder();
+	private final LongAdder results = new LongAdder();
+	private final Queue<Rating> unconverged = new ConcurrentLinkedQueue<Rating>();
+	private final LongAdder resultsGathered = new LongAdder();
+	private final LongAdder gatherNanos = new LongAdder();
+
+	private final long[] phaseNanos = new long[Phase.values().length];
+	private final int[] phasePlayers = new int[Phase.values().length];
+	private volatile int ratingPeriod = -1;
+	private volatile long periodNanos = 0;
+	private volatile long solverFailures = 0;
+	private volatile boolean complete = false;
+
+
+	private static LongAdder[] createBuckets(int count) {
+		LongAdder[] buckets = new LongAdder[count];
+		for ( int i = 0; i < count; i++ ) {
+			buckets[i] = new LongAdder();
+		}
+		return buckets;
+	}
+
+
+	@Override
+	public synchronized void periodStarted(int ratingPeriod) {
+		this.ratingPeriod = ratingPeriod;
+		this.complete = false;
+		this.periodNanos = 0;
+		this.solverFailures = 0;
+
+		for ( int i = 0; i < phaseNanos.length; i++ ) {
+			phaseNanos[i] = 0;
+			phasePlayers[i] = 0;
+		}
+		reset(resultsPerPlayer);
+		reset(solverIterations);
+		reset(ratingChanges);
+		playersRated.reset();
+		results.reset();
+		unconverged.clear();
+		resultsGathered.reset();
+		gatherNanos.reset();
+	}
+
+
+	private static void reset(LongAdder[] buckets) {
+		for ( LongAdder bucket : buckets ) {
+			bucket.reset();
+		}
+	}
+
+
+	@Override
+	public synchronized void phaseCompleted(int ratingPeriod, Phase phase, int players, long nanos) {
+		phaseNanos[phase.ordinal()] = nanos;
+		phasePlayers[phase.ordinal()] = players;
+	}
+
+
+	@Override
+	public void playerRated(Rating player, int numberOfResults, int solverIterations, boolean converged, double ratingChange) {
+		playersRated.increment();
+		results.add(numberOfResults);
+		if ( ! converged ) {
+			unconverged.add(player);
+		}
+
+		int resultsBucket = numberOfResults == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(numberOfResults);
+		resultsPerPlayer[Math.min(resultsBucket, RESULTS_BUCKETS - 1)].increment();
+
+		this.solverIterations[Math.min(solverIterations, MAX_ITERATIONS_BUCKET)].increment();
+
+		int changeBucket = (int) Math.floor(( ratingChange + RATING_CHANGE_RANGE ) / RATING_CHANGE_BUCKET_WIDTH);
+		ratingChanges[Math.max(0, Math.min(changeBucket, RATING_CHANGE_BUCKETS - 1))].increment();
+	}
+
+
+	@Override
+	public void resultsGathered(int results, long nanos) {
+		resultsGathered.add(results);
+		gatherNanos.add(nanos);
+	}
+
+
+	@Override
+	public synchronized void periodCompleted(int ratingPeriod, long nanos, SolverStatistics solverStatistics) {
+		this.periodNanos = nanos;
+		this.solverFailures = solverStatistics.getFailures();
+		this.complete = true;
+	}
+
+
+	/**
+	 * @return the calculator's number for the rating period these statistics cover, or -1 before the first period
+	 */
+	public int getRatingPeriod() {
+		return ratingPeriod;
+	}
+
+	/**
+	 * @return whether the rating period has completed
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return time taken by the whole update
+	 */
+	public long getPeriodNanos() {
+		return periodNanos;
+	}
+
+	public synchronized long getPhaseNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	public synchronized int getPhasePlayers(Phase phase) {
+		return phasePlayers[phase.ordinal()];
+	}
+
+	public long getPlayersRated() {
+		return playersRated.sum();
+	}
+
+	/**
+	 * @return the total number of player results (so each game is counted once for each of its players)
+	 */
+	public long getResults() {
+		return results.sum();
+	}
+
+	public long getSolverFailures() {
+		return solverFailures;
+	}
+
+	/**
+	 * @return the number of results gathered in by a resultset that this has been set on
+	 */
+	public long getResultsGathered() {
+		return resultsGathered.sum();
+	}
+
+	/**
+	 * @return time spent gathering in results by a resultset that this has been set on
+	 */
+	public long getGatherNanos() {
+		return gatherNanos.sum();
+	}
+
+	/**
+	 * @return the players whose volatility solve failed to converge, in no particular order
+	 */
+	public List<Rating> getUnconvergedPlayers() {
+		return new ArrayList<Rating>(unconverged);
+	}
+
+	/**
+	 * @return number of players in each results bucket; bucket i counts players with between 2^(i-1) and 2^i - 1 results
+	 */
+	public long[] getResultsPerPlayerHistogram() {
+		return snapshot(resultsPerPlayer);
+	}
+
+	/**
+	 * @return number of players whose volatility took i iterations to find, at index i
+	 */
+	public long[] getSolverIterationsHistogram() {
+		return snapshot(solverIterations);
+	}
+
+	/**
+	 * @return number of players whose rating changed by an amount in each bucket, starting from -{@link #RATING_CHANGE_RANGE}
+	 */
+	public long[] getRatingChangeHistogram() {
+		return snapshot(ratingChanges);
+	}
+
+
+	private static long[] snapshot(LongAdder[] buckets) {
+		long[] counts = new long[buckets.length];
+		for ( int i = 0; i < buckets.length; i++ ) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+
+
+	/**
+	 * Returns the period's headline figures for inspection
+	 *
+	 * @return {ratingPeriod} / {periodNanos} / {playersRated} / {results} / {solverFailures}
+	 */
+	@Override
+	public String toString() {
+		return ratingPeriod + " / " +
+				periodNanos + " / " +
+				getPlayersRated() + " / " +
+				getResults() + " / " +
+				solverFailures;
+	}
+}
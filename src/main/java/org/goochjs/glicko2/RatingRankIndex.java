@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps players in rating order, so that leaderboards, ranks and percentiles can be read without sorting.
+ *
+ * <p>The index is an order-statistic treap: a balanced binary tree in which each node knows the size of its
+ * subtree, so finding a player's rank or the player at a given rank takes O(log n) steps, and the top k
+ * players can be read in O(k + log n). Set the index on a {@link RatingCalculator} and it is brought up to
+ * date as each rating period is finalised; each player whose rating changed costs O(log n).</p>
+ *
+ * <p>Optionally, only players whose rating deviation is at or below a threshold are ranked, so that players
+ * whose rating is still uncertain are kept off the leaderboard. The deviation compared is the one given by
+ * {@link RatingCalculator#getCurrentRatingDeviation(Rating)}, so with lazy inactivity a player who has stopped
+ * competing is dropped at the end of the rating period in which their deviation passes the threshold, even
+ * though their Rating is not touched until they next compete.</p>
+ *
+ * <p>Players with equal ratings are ranked in the order in which they reached that rating. The methods of this
+ * class are synchronized, so it can be queried while a rating period is being finalised.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingRankIndex {
+
+	private final double maximumDeviation;
+	private final Map<Rating, Node> nodes = new IdentityHashMap<Rating, Node>();
+	private final TreeMap<Integer, Set<Node>> expiries = new TreeMap<Integer, Set<Node>>(); // ranked players by the rating period in which they pass the threshold
+	private final Random priorities = new Random();
+	private RatingCalculator ratingSystem = null;
+	private Node root = null;
+	private long sequence = 0;
+
+
+	/**
+	 * Create an index which ranks every player.
+	 */
+	public RatingRankIndex() {
+		this(Double.POSITIVE_INFINITY);
+	}
+
+
+	/**
+	 * @param maximumDeviation  only players with a rating deviation (Glicko scale) at or below this are ranked
+	 */
+	public RatingRankIndex(double maximumDeviation) {
+		this.maximumDeviation = maximumDeviation;
+	}
+
+
+	/**
+	 * Bring a player's place in the index up to date with their rating, adding them if they are not already
+	 * ranked and removing them if their deviation has risen above the threshold. Once the index has been set
+	 * on a calculator, the player's current deviation is read from it; until then, the deviation held in
+	 * their Rating is used.
+	 *
+	 * @param player
+	 */
+	public synchronized void update(Rating player) {
+		Node node = nodes.get(player);
+		double rating = player.getRating();
+		boolean eligible = getCurrentRatingDeviation(player) <= maximumDeviation;
+
+		if ( node != null ) {
+			if ( eligible && node.rating == rating && node.expiry == expiryOf(player) ) {
+				return;
+			}
+			removeNode(node);
+		}
+
+		if ( eligible ) {
+			node = new Node(player, rating, sequence++, priorities.nextInt(), expiryOf(player));
+			root = insert(root, node);
+			nodes.put(player, node);
+			if ( node.expiry != Integer.MAX_VALUE ) {
+				Set<Node> expiring = expiries.get(node.expiry);
+				if ( expiring == null ) {
+					expiring = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+					expiries.put(node.expiry, expiring);
+				}
+				expiring.add(node);
+			}
+		}
+	}
+
+
+	/**
+	 * Called by the calculator once a rating period has closed, to drop the players who did not compete and
+	 * whose deviation has now passed the threshold.
+	 *
+	 * @param ratingPeriod  the calculator's rating period, now that it has closed
+	 */
+	synchronized void expire(int ratingPeriod) {
+		while ( ! expiries.isEmpty() && expiries.firstKey() <= ratingPeriod ) {
+			for ( Node node : expiries.pollFirstEntry().getValue() ) {
+				root = remove(root, node);
+				nodes.remove(node.player);
+			}
+		}
+	}
+
+
+	/**
+	 * @param ratingSystem  the calculator that the index has been set on, which the players' current deviations are read from
+	 */
+	synchronized void setRatingSystem(RatingCalculator ratingSystem) {
+		this.ratingSystem = ratingSystem;
+	}
+
+
+	private double getCurrentRatingDeviation(Rating player) {
+		return ratingSystem == null ? player.getRatingDeviation() : ratingSystem.getCurrentRatingDeviation(player);
+	}
+
+
+	/**
+	 * @param player
+	 * @return the rating period by the end of which the player's current deviation will have passed the
+	 * threshold if they do not compete, or Integer.MAX_VALUE if it never will (or is not increased lazily)
+	 */
+	private int expiryOf(Rating player) {
+		if ( ratingSystem == null || ! ratingSystem.isLazyInactivity() || maximumDeviation == Double.POSITIVE_INFINITY ) {
+			return Integer.MAX_VALUE;
+		}
+
+		double phi = player.getGlicko2RatingDeviation();
+		double sigma = player.getVolatility();
+		if ( sigma <= 0 ) {
+			return Integer.MAX_VALUE;
+		}
+
+		// an estimate of the number of periods the player can miss and stay within the threshold, which is then
+		// corrected against the calculator's own arithmetic so that the boundary agrees with it exactly
+		double maximumPhi = RatingCalculator.convertRatingDeviationToGlicko2Scale(maximumDeviation);
+		double estimate = Math.floor(( maximumPhi * maximumPhi - phi * phi ) / ( sigma * sigma ));
+		if ( estimate >= Integer.MAX_VALUE / 2 ) {
+			return Integer.MAX_VALUE;
+		}
+		int missable = (int) Math.max(0, estimate);
+		while ( deviationAfter(phi, sigma, missable + 1) <= maximumDeviation ) {
+			missable++;
+		}
+		while ( missable > 0 && deviationAfter(phi, sigma, missable) > maximumDeviation ) {
+			missable--;
+		}
+
+		return (int) Math.min(Integer.MAX_VALUE, (long) player.getLastRatedPeriod() + missable + 1);
+	}
+
+
+	private static double deviationAfter(double phi, double sigma, int missedPeriods) {
+		return RatingCalculator.convertRatingDeviationToOriginalGlickoScale(RatingCalculator.calculateNewRD(phi, sigma, missedPeriods));
+	}
+
+
+	private void removeNode(Node node) {
+		root = remove(root, node);
+		nodes.remove(node.player);
+		Set<Node> expiring = expiries.get(node.expiry);
+		if ( expiring != null ) {
+			expiring.remove(node);
+			if ( expiring.isEmpty() ) {
+				expiries.remove(node.expiry);
+			}
+		}
+	}
+
+
+	/**
+	 * Remove a player from the index.
+	 *
+	 * @param player
+	 */
+	public synchronized void remove(Rating player) {
+		Node node = nodes.get(player);
+
+		if ( node != null ) {
+			removeNode(node);
+		}
+	}
+
+
+	/**
+	 * @return the number of players ranked
+	 */
+	public synchronized int size() {
+		return size(root);
+	}
+
+
+	/**
+	 * @param player
+	 * @return whether the player is ranked
+	 */
+	public synchronized boolean contains(Rating player) {
+		return nodes.containsKey(player);
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's rank, where the highest rated player is 1, or -1 if the player is not ranked
+	 */
+	public synchronized int getRank(Rating player) {
+		Node node = nodes.get(player);
+		if ( node == null ) {
+			return -1;
+		}
+
+		int before = 0;
+		Node current = root;
+		while ( current != node ) {
+			if ( precedes(node, current) ) {
+				current = current.left;
+			} else {
+				before += size(current.left) + 1;
+				current = current.right;
+			}
+		}
+
+		return before + size(node.left) + 1;
+	}
+
+
+	/**
+	 * @param rank  from 1 (the highest rated player) to {@link #size()}
+	 * @return the player at that rank
+	 */
+	public synchronized Rating getPlayerAt(int rank) {
+		if ( rank < 1 || rank > size(root) ) {
+			throw new IllegalArgumentException("No player at rank " + rank);
+		}
+
+		Node current = root;
+		int remaining = rank;
+		while ( true ) {
+			int leftSize = size(current.left);
+			if ( remaining <= leftSize ) {
+				current = current.left;
+			} else if ( remaining == leftSize + 1 ) {
+				return current.player;
+			} else {
+				remaining -= leftSize + 1;
+				current = current.right;
+			}
+		}
+	}
+
+
+	/**
+	 * @param k
+	 * @return the k highest rated players (or all of them, if fewer are ranked), highest first
+	 */
+	public synchronized List<Rating> getTop(int k) {
+		List<Rating> top = new ArrayList<Rating>(Math.min(k, size(root)));
+		collect(root, top, k);
+		return top;
+	}
+
+
+	private static void collect(Node node, List<Rating> players, int k) {
+		if ( node == null || players.size() >= k ) {
+			return;
+		}
+		collect(node.left, players, k);
+		if ( players.size() < k ) {
+			players.add(node.player);
+			collect(node.right, players, k);
+		}
+	}
+
+
+	/**
+	 * @param rating  in Glicko scale
+	 * @return the number of ranked players with a rating strictly higher than the one given
+	 */
+	public synchronized int countAbove(double rating) {
+		int count = 0;
+		Node current = root;
+
+		while ( current != null ) {
+			if ( current.rating > rating ) {
+				count += size(current.left) + 1;
+				current = current.right;
+			} else {
+				current = current.left;
+			}
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the percentage of the other ranked players that the player is ranked above, or -1 if they are not ranked
+	 */
+	public synchronized double getPercentile(Rating player) {
+		int rank = getRank(player);
+		if ( rank < 0 ) {
+			return -1;
+		}
+
+		int others = size(root) - 1;
+		return others == 0 ? 100.0 : 100.0 * ( others - ( rank - 1 ) ) / others;
+	}
+
+
+	/**
+	 * @param a
+	 * @param b
+	 * @return whether a comes before b in the index: higher rating first, then whichever reached its rating first
+	 */
+	private static boolean precedes(Node a, Node b) {
+		return a.rating > b.rating || ( a.rating == b.rating && a.sequence < b.sequence );
+	}
+
+
+	private static Node insert(Node root, Node node) {
+		if ( root == null ) {
+			return node;
+		}
+
+		if ( node.priority > root.priority ) {
+			// the new node becomes the root of this subtree, with the old subtree split around it
+			Node[] parts = new Node[2];
+			split(root, node, parts);
+			node.left = parts[0];
+			node.right = parts[1];
+			node.resize();
+			return node;
+		} else if ( precedes(node, root) ) {
+			root.left = insert(root.left, node);
+		} else {
+			root.right = insert(root.right, node);
+		}
+
+		root.resize();
+		return root;
+	}
+
+
+	/**
+	 * Split a subtree into the nodes that precede the key (parts[0]) and those that follow it (parts[1]).
+	 */
+	private static void split(Node root, Node key, Node[] parts) {
+		if ( root == null ) {
+			parts[0] = null;
+			parts[1] = null;
+		} else if ( precedes(root, key) ) {
+			split(root.right, key, parts);
+			root.right = parts[0];
+			root.resize();
+			parts[0] = root;
+		} else {
+			split(root.left, key, parts);
+			root.left = parts[1];
+			root.resize();
+			parts[1] = root;
+		}
+	}
+
+
+	private static Node remove(Node root, Node node) {
+		if ( root == node ) {
+			return merge(node.left, node.right);
+		}
+
+		if ( precedes(node, root) ) {
+			root.left = remove(root.left, node);
+		} else {
+			root.right = remove(root.right, node);
+		}
+
+		root.resize();
+		return root;
+	}
+
+
+	/**
+	 * Join two subtrees, every node of the first of which precedes every node of the second.
+	 */
+	private static Node merge(Node left, Node right) {
+		if ( left == null ) {
+			return right;
+		} else if ( right == null ) {
+			return left;
+		} else if ( left.priority > right.priority ) {
+			left.right = merge(left.right, right);
+			left.resize();
+			return left;
+		} else {
+			right.left = merge(left, right.left);
+			right.resize();
+			return right;
+		}
+	}
+
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+
+	private static class Node {
+		final Rating player;
+		final double rating;
+		final long sequence;
+		final int priority;
+		final int expiry;
+		Node left;
+		Node right;
+		int size = 1;
+
+		Node(Rating player, double rating, long sequence, int priority, int expiry) {
+			this.player = player;
+			this.rating = rating;
+			this.sequence = sequence;
+			this.priority = priority;
+			this.expiry = expiry;
+		}
+
+		void resize() {
+			size = 1 + RatingRankIndex.size(left) + RatingRankIndex.size(right);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A what-if copy of a calculator's ratings, for running hypothetical rating periods without changing any
+ * {@link Rating}.
+ *
+ * <p>The scenario starts from the players' current ratings, and only copies a player the first time that
+ * they have a result in one of its rating periods; every other player is read through to their real rating.
+ * Without lazy inactivity, a participant who has no results still has their deviation increased, so the
+ * scenario keeps just their new values for them, rather than a copy of their Rating. Each
+ * rating period is calculated by a calculator with the same settings as the original, so the ratings are
+ * exactly those that the original would produce from the same results.</p>
+ *
+ * <p>A scenario is meant to be used by a single thread and then thrown away. Any number of scenarios can be
+ * run at once on different threads, e.g. for Monte Carlo simulation of a tournament, as long as the original
+ * calculator is not updating the real ratings at the same time.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingScenario {
+
+	private final RatingCalculator ratingSystem; // a copy of the original's settings, which only ever rates the copies
+	private final Map<Rating, Rating> copies = new HashMap<Rating, Rating>();
+	private final Map<Rating, RatingState> idle = new HashMap<Rating, RatingState>(); // participants without results, when inactivity is applied eagerly
+
+
+	/**
+	 * Start a scenario from the current ratings of a calculator's players.
+	 *
+	 * @param ratingSystem
+	 */
+	public RatingScenario(RatingCalculator ratingSystem) {
+		this.ratingSystem = ratingSystem.copySettings();
+		this.ratingSystem.setRatingPeriod(ratingSystem.getRatingPeriod());
+	}
+
+
+	/**
+	 * Calculate a hypothetical rating period within the scenario. The resultset refers to the real players,
+	 * and is left as it is, so that it can be reused or changed for another scenario.
+	 *
+	 * @param results
+	 */
+	public void updateRatings(RatingPeriodResults results) {
+		RatingPeriodResults copied = new RatingPeriodResults();
+
+		// the participants are gathered first, as that brings a concurrent resultset's results in
+		Set<Rating> participants = results.getParticipants();
+		List<Rating> idleParticipants = new ArrayList<Rating>();
+		if ( ! ratingSystem.isLazyInactivity() ) {
+			Set<Rating> playersWithResults = results.getPlayersWithResults();
+			for ( Rating participant : participants ) {
+				if ( copies.containsKey(participant) || playersWithResults.contains(participant) ) {
+					copied.addParticipants(copy(participant));
+				} else {
+					idleParticipants.add(participant);
+				}
+			}
+		}
+
+		// each player's results are added in their original order, so the calculation is the same
+		for ( Result result : results.results() ) {
+			copied.addResult(result.withPlayers(copy(result.getPlayer1()), copy(result.getPlayer2())));
+		}
+		for ( RankedResult result : results.rankedResults() ) {
+			Rating[] players = new Rating[result.getNumberOfPlayers()];
+			int[] ranks = new int[players.length];
+
+			for ( int i = 0; i < players.length; i++ ) {
+				players[i] = copy(result.getPlayer(i));
+				ranks[i] = result.getRank(i);
+			}
+			copied.addRankedResult(new RankedResult(players, ranks));
+		}
+
+		ratingSystem.updateRatings(copied);
+
+		// only step 6 applies to a participant without results, worked through the same conversions as the calculator's
+		for ( Rating participant : idleParticipants ) {
+			RatingState state = getState(participant);
+			idle.put(participant, new RatingState(
+					RatingCalculator.convertRatingToOriginalGlickoScale(state.getGlicko2Rating()),
+					RatingCalculator.convertRatingDeviationToOriginalGlickoScale(
+							RatingCalculator.calculateNewRD(state.getGlicko2RatingDeviation(), state.getVolatility())),
+					state.getVolatility(),
+					state.getNumberOfResults(),
+					ratingSystem.getRatingPeriod(),
+					null));
+		}
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's rating copied into the scenario, which is created from their real rating if need be
+	 */
+	private Rating copy(Rating player) {
+		Rating copy = copies.get(player);
+
+		if ( copy == null ) {
+			RatingState state = idle.remove(player);
+			int lastRatedPeriod = state == null ? player.getLastRatedPeriod() : state.getVersion();
+			if ( state == null ) {
+				state = player.getState();
+			}
+
+			copy = new Rating(player.getUid(), ratingSystem,
+					state.getRating(), state.getRatingDeviation(), state.getVolatility());
+			copy.incrementNumberOfResults(state.getNumberOfResults());
+			copy.setLastRatedPeriod(lastRatedPeriod);
+			copies.put(player, copy);
+		}
+
+		return copy;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's rating within the scenario, which is their real rating if the scenario has not touched them
+	 */
+	public RatingState getState(Rating player) {
+		Rating copy = copies.get(player);
+		if ( copy != null ) {
+			return copy.getState();
+		}
+
+		RatingState state = idle.get(player);
+		return state == null ? player.getState() : state;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's rating deviation within the scenario, including any rating periods missed under lazy inactivity
+	 */
+	public double getCurrentRatingDeviation(Rating player) {
+		Rating copy = copies.get(player);
+		if ( copy != null ) {
+			return ratingSystem.getCurrentRatingDeviation(copy);
+		}
+
+		RatingState state = idle.get(player);
+		return state == null ? ratingSystem.getCurrentRatingDeviation(player) : state.getRatingDeviation();
+	}
+
+
+	/**
+	 * @return the number of rating periods processed, including those of the scenario
+	 */
+	public int getRatingPeriod() {
+		return ratingSystem.getRatingPeriod();
+	}
+
+
+	/**
+	 * @return the number of players that the scenario has copied, which does not include participants who only had their deviation increased
+	 */
+	public int getNumberOfCopies() {
+		return copies.size();
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * A consistent, read-only view of every player's rating as at the end of one rating period.
+ *
+ * <p>Take a snapshot with {@link RatingCalculator#getSnapshot()}. While the next rating period is being calculated
+ * and finalised, a snapshot carries on returning the values from before it, whichever players have already been
+ * finalised; the calculator publishes a new snapshot once every player has been. Reads take no locks, so any
+ * number of threads can read from a snapshot while an update is running.</p>
+ *
+ * <p>Only one rating period of history is kept, so a snapshot remains readable until the calculator starts to
+ * finalise the period after the one that replaced it. Reading from a snapshot after that throws an
+ * IllegalStateException; readers should take a fresh snapshot for each unit of work. A player created after the
+ * snapshot's rating period is not in it at all, which is reported separately.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingSnapshot {
+
+	private final int ratingPeriod;
+
+
+	RatingSnapshot(int ratingPeriod) {
+		this.ratingPeriod = ratingPeriod;
+	}
+
+
+	/**
+	 * @return the number of rating periods that the calculator had processed when this snapshot was published
+	 */
+	public int getRatingPeriod() {
+		return ratingPeriod;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's values as at this snapshot, or null if the player was created after it
+	 * @throws IllegalStateException if the snapshot has expired
+	 */
+	public RatingState get(Rating player) {
+		if ( player.getCreatedPeriod() > ratingPeriod ) {
+			return null;
+		}
+
+		RatingState state = player.getState();
+
+		while ( state.getVersion() > ratingPeriod ) {
+			state = state.previous;
+			if ( state == null ) {
+				throw new IllegalStateException("Snapshot of rating period " + ratingPeriod + " has expired");
+			}
+		}
+
+		return state;
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's values as at this snapshot
+	 * @throws IllegalArgumentException if the player was created after the snapshot
+	 */
+	private RatingState getExisting(Rating player) {
+		RatingState state = get(player);
+
+		if ( state == null ) {
+			throw new IllegalArgumentException(player.getUid() + " was created after rating period " + ratingPeriod);
+		}
+
+		return state;
+	}
+
+
+	public double getRating(Rating player) {
+		return getExisting(player).getRating();
+	}
+
+	/**
+	 * @param player
+	 * @return the player's deviation as at the last rating period they were rated in, as {@link Rating#getRatingDeviation()}
+	 */
+	public double getRatingDeviation(Rating player) {
+		return getExisting(player).getRatingDeviation();
+	}
+
+	public double getVolatility(Rating player) {
+		return getExisting(player).getVolatility();
+	}
+
+	public int getNumberOfResults(Rating player) {
+		return getExisting(player).getNumberOfResults();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * An immutable copy of a player's rating, deviation, volatility and number of results, as they stood
+ * at the end of a particular rating period.
+ *
+ * <p>A {@link Rating} holds its values as one of these, and replaces it as a whole when they change, so the
+ * values of a state are always consistent with one another. Each state is linked to the state the player
+ * had at the end of the previous rating period, for use by a {@link RatingSnapshot}. Only one rating period of
+ * history is kept: the link is to a copy of that state without a link of its own, so that older states can be
+ * garbage collected without any state having to change.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class RatingState {
+
+	private final double rating;
+	private final double ratingDeviation;
+	private final double volatility;
+	private final int numberOfResults;
+	private final int version;
+	final RatingState previous;
+
+
+	RatingState(double rating, double ratingDeviation, double volatility, int numberOfResults, int version, RatingState previous) {
+		this.rating = rating;
+		this.ratingDeviation = ratingDeviation;
+		this.volatility = volatility;
+		this.numberOfResults = numberOfResults;
+		this.version = version;
+		this.previous = previous;
+	}
+
+
+	/**
+	 * @return this state, or a copy of it if it is linked to an earlier one, to be linked to from the next state
+	 */
+	RatingState withoutHistory() {
+		return previous == null ? this : new RatingState(rating, ratingDeviation, volatility, numberOfResults, version, null);
+	}
+
+
+	public double getRating() {
+		return rating;
+	}
+
+	public double getRatingDeviation() {
+		return ratingDeviation;
+	}
+
+	public double getGlicko2Rating() {
+		return RatingCalculator.convertRatingToGlicko2Scale(rating);
+	}
+
+	public double getGlicko2RatingDeviation() {
+		return RatingCalculator.convertRatingDeviationToGlicko2Scale(ratingDeviation);
+	}
+
+	public double getVolatility() {
+		return volatility;
+	}
+
+	public int getNumberOfResults() {
+		return numberOfResults;
+	}
+
+	/**
+	 * @return the calculator's rating period at the end of which the player had these values
+	 */
+	public int getVersion() {
+		return version;
+	}
+}
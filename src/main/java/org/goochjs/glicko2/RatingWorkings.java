@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Holds the running totals from steps 3 and 4 of Glickman's paper for one player, and the new rating
+ * that steps 5 to 7 work out from them, all in Glicko-2 scale.
+ *
+ * @author Jeremy Gooch
+ */
+class RatingWorkings {
+
+	int games;
+	double vSum;
+	double outcomeSum;
+
+	double rating;
+	double ratingDeviation;
+	double volatility;
+}
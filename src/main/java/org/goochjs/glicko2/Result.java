@@ -17,8 +17,8 @@ public class Result {
 	private static final double POINTS_FOR_DRAW = 0.5;
 	
 	private boolean isDraw = false;
-	private Rating winner;
-	private Rating loser;
+	private Rating player1;
+	private Rating player2;
 	
 	
 	/**
@@ -32,8 +32,8 @@ public class Result {
 			throw new IllegalArgumentException();
 		}
 
-		this.winner = winner;
-		this.loser = loser;
+		this.player1 = winner;
+		this.player2 = loser;
 	}
 	
 	
@@ -49,8 +49,8 @@ public class Result {
 			throw new IllegalArgumentException();
 		}
 		
-		this.winner = player1;
-		this.loser = player2;
+		this.player1 = player1;
+		this.player2 = player2;
 		this.isDraw = true;
 	}
 
@@ -78,7 +78,7 @@ public class Result {
 	 * @return boolean (true if player participated in the match)
 	 */
 	public boolean participated(Rating player) {
-		if ( winner.equals(player) || loser.equals(player) ) {
+		if ( player1.equals(player) || player2.equals(player) ) {
 			return true;
 		} else {
 			return false;
@@ -96,9 +96,9 @@ public class Result {
 	public double getScore(Rating player) throws IllegalArgumentException {
 		double score;
 		
-		if ( winner.equals(player) ) {
+		if ( player1.equals(player) ) {
 			score = POINTS_FOR_WIN;
-		} else if ( loser.equals(player) ) {
+		} else if ( player2.equals(player) ) {
 			score = POINTS_FOR_LOSS;			
 		} else {
 			throw new IllegalArgumentException("Player " + player.getUid() + " did not participate in match");
@@ -112,6 +112,26 @@ public class Result {
 	}
 	
 	
+	/**
+	 * @return the number of games represented by this result
+	 */
+	public int getNumberOfGames() {
+		return 1;
+	}
+	
+	
+	/**
+	 * Returns the sum of a player's scores over all the games represented by this result.
+	 * 
+	 * @param player
+	 * @return total score
+	 * @throws IllegalArgumentException
+	 */
+	public double getTotalScore(Rating player) throws IllegalArgumentException {
+		return getScore(player);
+	}
+	
+	
 	/**
 	 * Given a particular player, returns the opponent.
 	 * 
@@ -121,10 +141,10 @@ public class Result {
 	public Rating getOpponent(Rating player) {
 		Rating opponent;
 		
-		if ( winner.equals(player) ) {
-			opponent = loser;
-		} else if ( loser.equals(player) ) {
-			opponent = winner;			
+		if ( player1.equals(player) ) {
+			opponent = player2;
+		} else if ( player2.equals(player) ) {
+			opponent = player1;			
 		} else {
 			throw new IllegalArgumentException("Player " + player.getUid() + " did not participate in match");
 		}
@@ -133,12 +153,44 @@ public class Result {
 	}
 	
 	
+	/**
+	 * @param player1 stands in for {@link #getPlayer1()}
+	 * @param player2 stands in for {@link #getPlayer2()}
+	 * @return the same result between a different pair of players
+	 */
+	Result withPlayers(Rating player1, Rating player2) {
+		return isDraw ? new Result(player1, player2, true) : new Result(player1, player2);
+	}
+	
+	
+	/**
+	 * @return the first player named when the result was recorded, whatever the outcome
+	 */
+	public Rating getPlayer1() {
+		return this.player1;
+	}
+
+	
+	/**
+	 * @return the second player named when the result was recorded, whatever the outcome
+	 */
+	public Rating getPlayer2() {
+		return this.player2;
+	}
+	
+	
+	/**
+	 * @return the winner, or the first player in the case of a draw
+	 */
 	public Rating getWinner() {
-		return this.winner;
+		return this.player1;
 	}
 
 	
+	/**
+	 * @return the loser, or the second player in the case of a draw
+	 */
 	public Rating getLoser() {
-		return this.loser;
+		return this.player2;
 	}
 }
@@ -0,0 +1,544 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only binary log of the results recorded during rating periods, from which the results of
+ * an unfinished rating period can be recovered after a crash.
+ *
+ * <p>Each player is written to the log once, as a definition record that gives them an int id within the
+ * log; every later record refers to them by that id. The log keeps each player's id by uid for as long as it
+ * is open, so that they are only defined once, which costs one map entry per player ever logged. It also caches
+ * the id against each Rating object it is given, which saves looking up the uid; that cache is dropped by
+ * {@link #releasePlayers()}, which {@link RatingCheckpoint} calls, so it only holds the players logged since the
+ * last checkpoint and does not keep discarded Ratings reachable. A record is written for each result, draw, series,
+ * free-for-all match and participant, and a marker is written when a rating period is closed. Write the
+ * marker with {@link #closePeriod(int)} <i>before</i> calling updateRatings, so that a crash part way through
+ * the calculation is seen on recovery as a closed period which must be calculated again.</p>
+ *
+ * <p>A record that was only partly written when the process died is ignored on replay, and is cut off when the
+ * log is next opened for writing. Records are buffered; call {@link #flush()} or {@link #force()} to bound how
+ * much can be lost. Use with {@link RatingCheckpoint}, which holds the ratings as at the end of a rating period,
+ * along with the offset in the log at which the following rating period starts. Replay starts from that offset;
+ * the records before it are only read for their player definitions.</p>
+ *
+ * <p>The methods of this class are synchronized, so it can be written from any number of threads.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class ResultLog implements Closeable {
+
+	private static final int MAGIC = 0x476c6b4c; // "GlkL"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// record types
+	private static final byte PLAYER = 1;
+	private static final byte RESULT = 2;
+	private static final byte DRAW = 3;
+	private static final byte SERIES = 4;
+	private static final byte RANKED = 5;
+	private static final byte PARTICIPANT = 6;
+	private static final byte PERIOD_CLOSED = 7;
+
+	private final FileOutputStream file;
+	private final DataOutputStream out;
+	private final Map<Rating, Integer> playerIds = new IdentityHashMap<Rating, Integer>(); // cleared by releasePlayers()
+	private final Map<String, Integer> idsByUid = new HashMap<String, Integer>();
+	private int nextPlayerId;
+	private long position; // the length of the log, including records still in the buffer
+	private long openPeriodOffset = 0; // where the records after the latest rating period marker start
+	private int lastClosedPeriod = -1;
+
+
+	/**
+	 * Open a log for appending, creating the file if it does not already exist.
+	 *
+	 * @param fileName
+	 * @throws IOException if the file cannot be opened, or is not a result log
+	 */
+	public ResultLog(String fileName) throws IOException {
+		File logFile = new File(fileName);
+
+		if ( logFile.length() > 0 ) {
+			// pick up the ids of the players already in the log, and cut off any partly written record
+			List<String> uids = new ArrayList<String>();
+			Scan scan = read(fileName, uids, null, 0);
+			long end = scan.end;
+			for ( int i = 0; i < uids.size(); i++ ) {
+				idsByUid.put(uids.get(i), i);
+			}
+			nextPlayerId = uids.size();
+			position = end;
+			openPeriodOffset = scan.openPeriodOffset;
+			lastClosedPeriod = scan.lastClosedPeriod;
+
+			RandomAccessFile raf = new RandomAccessFile(logFile, "rw");
+			try {
+				raf.getChannel().truncate(end);
+			} finally {
+				raf.close();
+			}
+		}
+
+		boolean isNew = logFile.length() == 0;
+		file = new FileOutputStream(logFile, true);
+		out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE));
+
+		if ( isNew ) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			position = HEADER_SIZE;
+		}
+	}
+
+
+	/**
+	 * Log a result.
+	 *
+	 * @param winner
+	 * @param loser
+	 * @throws IOException
+	 */
+	public synchronized void addResult(Rating winner, Rating loser) throws IOException {
+		int winnerId = idOf(winner);
+		int loserId = idOf(loser);
+
+		out.writeByte(RESULT);
+		out.writeInt(winnerId);
+		out.writeInt(loserId);
+		position += 9;
+	}
+
+
+	/**
+	 * Log a draw.
+	 *
+	 * @param player1
+	 * @param player2
+	 * @throws IOException
+	 */
+	public synchronized void addDraw(Rating player1, Rating player2) throws IOException {
+		int id1 = idOf(player1);
+		int id2 = idOf(player2);
+
+		out.writeByte(DRAW);
+		out.writeInt(id1);
+		out.writeInt(id2);
+		position += 9;
+	}
+
+
+	/**
+	 * Log a series of games between two players.
+	 *
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 * @throws IOException
+	 */
+	public synchronized void addResults(Rating player1, Rating player2, int wins, int losses, int draws) throws IOException {
+		int id1 = idOf(player1);
+		int id2 = idOf(player2);
+
+		out.writeByte(SERIES);
+		out.writeInt(id1);
+		out.writeInt(id2);
+		out.writeInt(wins);
+		out.writeInt(losses);
+		out.writeInt(draws);
+		position += 21;
+	}
+
+
+	/**
+	 * Log a free-for-all match.
+	 *
+	 * @param result
+	 * @throws IOException
+	 */
+	public synchronized void addRankedResult(RankedResult result) throws IOException {
+		int n = result.getNumberOfPlayers();
+		int[] ids = new int[n];
+		for ( int i = 0; i < n; i++ ) {
+			ids[i] = idOf(result.getPlayer(i));
+		}
+
+		out.writeByte(RANKED);
+		out.writeInt(n);
+		for ( int i = 0; i < n; i++ ) {
+			out.writeInt(ids[i]);
+			out.writeInt(result.getRank(i));
+		}
+		position += 5 + 8L * n;
+	}
+
+
+	/**
+	 * Log a participant.
+	 *
+	 * @param rating
+	 * @throws IOException
+	 */
+	public synchronized void addParticipants(Rating rating) throws IOException {
+		int id = idOf(rating);
+
+		out.writeByte(PARTICIPANT);
+		out.writeInt(id);
+		position += 5;
+	}
+
+
+	/**
+	 * Log that a rating period is being closed, and force the log to disk. The results logged since the
+	 * previous marker belong to this rating period.
+	 *
+	 * @param ratingPeriod  the calculator's rating period number, before updateRatings is called
+	 * @throws IOException
+	 */
+	public synchronized void closePeriod(int ratingPeriod) throws IOException {
+		out.writeByte(PERIOD_CLOSED);
+		out.writeInt(ratingPeriod);
+		position += 5;
+		openPeriodOffset = position;
+		lastClosedPeriod = ratingPeriod;
+		force();
+	}
+
+
+	/**
+	 * @return the offset in the log at which the records of the open rating period start, just after the most
+	 * recent rating period marker, or 0 if no rating period has been closed
+	 */
+	public synchronized long getOpenPeriodOffset() {
+		return openPeriodOffset;
+	}
+
+
+	/**
+	 * @return the rating period number given to the most recent {@link #closePeriod(int)}, or -1 if there has been none
+	 */
+	public synchronized int getLastClosedPeriod() {
+		return lastClosedPeriod;
+	}
+
+
+	/**
+	 * Drop the log's references to the Rating objects it has been given since this was last called. Players keep
+	 * their ids, which are found again by uid when they are next logged.
+	 */
+	public synchronized void releasePlayers() {
+		playerIds.clear();
+	}
+
+
+	/**
+	 * @return the number of Rating objects that the log holds references to
+	 */
+	synchronized int getNumberOfCachedPlayers() {
+		return playerIds.size();
+	}
+
+
+	/**
+	 * Hand any buffered records to the operating system.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+
+	/**
+	 * Write any buffered records through to the storage device.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void force() throws IOException {
+		out.flush();
+		file.getChannel().force(false);
+	}
+
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+
+	/**
+	 * @param player
+	 * @return the player's id within the log, writing a definition record if this is their first appearance
+	 * @throws IOException
+	 */
+	private int idOf(Rating player) throws IOException {
+		Integer id = playerIds.get(player);
+
+		if ( id == null ) {
+			id = idsByUid.get(player.getUid());
+			if ( id == null ) {
+				id = nextPlayerId++;
+				byte[] uid = player.getUid().getBytes(UTF8);
+				out.writeByte(PLAYER);
+				out.writeInt(id);
+				out.writeInt(uid.length);
+				out.write(uid);
+				position += 9 + uid.length;
+				idsByUid.put(player.getUid(), id);
+			}
+			playerIds.put(player, id);
+		}
+
+		return id;
+	}
+
+
+	/**
+	 * <p>Replay a log against a set of players, as at the rating period held by the calculator.</p>
+	 * <p>Results of rating periods that the calculator has already processed are skipped. Each later rating
+	 * period that was closed is calculated again through {@link RatingCalculator#updateRatings(RatingPeriodResults)},
+	 * and the results logged since the last closed period are returned, ready for the open period to continue.</p>
+	 *
+	 * @param fileName
+	 * @param ratingSystem
+	 * @param players       players by uid; any player not found is created with default values and added
+	 * @param results       resultset to receive the open period's results; it is also used to calculate closed periods
+	 * @return the number of closed rating periods that were calculated
+	 * @throws IOException if the file cannot be read, or is not a result log
+	 */
+	public static int replay(String fileName, RatingCalculator ratingSystem, Map<String, Rating> players,
+			RatingPeriodResults results) throws IOException {
+		return replay(fileName, ratingSystem, players, results, 0);
+	}
+
+
+	/**
+	 * As {@link #replay(String, RatingCalculator, Map, RatingPeriodResults)}, starting from an offset given by
+	 * {@link #getOpenPeriodOffset()} when the calculator's ratings were saved. Only the player definitions are
+	 * read from the records before the offset.
+	 *
+	 * @param fileName
+	 * @param ratingSystem
+	 * @param players
+	 * @param results
+	 * @param offset        where the records of the calculator's rating period start, or 0 to read the whole log
+	 * @return the number of closed rating periods that were calculated
+	 * @throws IOException if the file cannot be read, is not a result log, or has no record starting at the offset
+	 */
+	public static int replay(String fileName, RatingCalculator ratingSystem, Map<String, Rating> players,
+			RatingPeriodResults results, long offset) throws IOException {
+		Replay replay = new Replay(ratingSystem, players, results);
+		if ( read(fileName, new ArrayList<String>(), replay, offset).end < offset ) {
+			throw new IOException(fileName + " ends before offset " + offset);
+		}
+		return replay.periodsCalculated;
+	}
+
+
+	/**
+	 * Read the log, collecting the uid of each player by id, and apply each record from the offset onwards to the
+	 * replay (if any). Records that the replay does not need are read past without building any objects.
+	 *
+	 * @return where the log's last complete record ends, and where its open rating period starts
+	 */
+	private static Scan read(String fileName, List<String> uids, Replay replay, long offset) throws IOException {
+		InputStream stream = new FileInputStream(fileName);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+		Scan scan = new Scan();
+		long position = 0;
+
+		try {
+			if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+				throw new IOException(fileName + " is not a result log");
+			}
+			position = HEADER_SIZE;
+
+			while ( true ) {
+				int type = in.read();
+				if ( type < 0 ) {
+					break;
+				}
+				boolean skipping = position < offset; // before the replay's starting point
+				boolean apply = replay != null && ! skipping && ! replay.isBehind();
+				long start = position;
+
+				switch ( type ) {
+				case PLAYER:
+					int id = in.readInt();
+					byte[] uid = new byte[in.readInt()];
+					in.readFully(uid);
+					if ( id != uids.size() ) {
+						throw new IOException(fileName + " is corrupt at offset " + position);
+					}
+					uids.add(new String(uid, UTF8));
+					position += 9 + uid.length;
+					break;
+				case RESULT:
+				case DRAW:
+				case SERIES:
+					int id1 = in.readInt();
+					int id2 = in.readInt();
+					int wins = 0, losses = 0, draws = 0;
+					if ( type == SERIES ) {
+						wins = in.readInt();
+						losses = in.readInt();
+						draws = in.readInt();
+					}
+					if ( apply ) {
+						Rating player1 = replay.player(uids, id1);
+						Rating player2 = replay.player(uids, id2);
+						if ( type == RESULT ) {
+							replay.results.addResult(new Result(player1, player2));
+						} else if ( type == DRAW ) {
+							replay.results.addResult(new Result(player1, player2, true));
+						} else {
+							replay.results.addResult(new AggregatedResult(player1, player2, wins, losses, draws));
+						}
+					}
+					position += type == SERIES ? 21 : 9;
+					break;
+				case RANKED:
+					int n = in.readInt();
+					if ( apply ) {
+						Rating[] rankedPlayers = new Rating[n];
+						int[] ranks = new int[n];
+						for ( int i = 0; i < n; i++ ) {
+							rankedPlayers[i] = replay.player(uids, in.readInt());
+							ranks[i] = in.readInt();
+						}
+						replay.results.addRankedResult(new RankedResult(rankedPlayers, ranks));
+					} else {
+						for ( int i = 0; i < 2 * n; i++ ) {
+							in.readInt();
+						}
+					}
+					position += 5 + 8L * n;
+					break;
+				case PARTICIPANT:
+					int participant = in.readInt();
+					if ( apply ) {
+						replay.results.addParticipants(replay.player(uids, participant));
+					}
+					position += 5;
+					break;
+				case PERIOD_CLOSED:
+					int ratingPeriod = in.readInt();
+					if ( replay != null && ! skipping ) {
+						replay.closePeriod(ratingPeriod);
+					}
+					position += 5;
+					scan.openPeriodOffset = position;
+					scan.lastClosedPeriod = ratingPeriod;
+					break;
+				default:
+					throw new IOException(fileName + " is corrupt at offset " + position);
+				}
+
+				if ( start < offset && position > offset ) {
+					throw new IOException(fileName + " has no record starting at offset " + offset);
+				}
+			}
+		} catch (EOFException e) {
+			// the last record was only partly written, so it is treated as never having been logged
+		} finally {
+			in.close();
+		}
+
+		scan.end = position;
+		return scan;
+	}
+
+
+	/**
+	 * What a read of the log found out about its structure.
+	 */
+	private static class Scan {
+		long end;
+		long openPeriodOffset = 0;
+		int lastClosedPeriod = -1;
+	}
+
+
+	/**
+	 * The state of a replay in progress.
+	 */
+	private static class Replay {
+		private final RatingCalculator ratingSystem;
+		private final Map<String, Rating> players;
+		private final RatingPeriodResults results;
+		private final List<Rating> playersById = new ArrayList<Rating>();
+		private int periodsCalculated = 0;
+		private int segmentPeriod = -1; // the rating period of the records being read, once a marker has said
+
+		Replay(RatingCalculator ratingSystem, Map<String, Rating> players, RatingPeriodResults results) {
+			this.ratingSystem = ratingSystem;
+			this.players = players;
+			this.results = results;
+		}
+
+		Rating player(List<String> uids, int id) {
+			while ( playersById.size() <= id ) {
+				playersById.add(null);
+			}
+
+			Rating player = playersById.get(id);
+			if ( player == null ) {
+				String uid = uids.get(id);
+				player = players.get(uid);
+				if ( player == null ) {
+					player = new Rating(uid, ratingSystem);
+					players.put(uid, player);
+				}
+				playersById.set(id, player);
+			}
+
+			return player;
+		}
+
+		/**
+		 * @return whether the records being read belong to a rating period that the calculator has already processed
+		 */
+		boolean isBehind() {
+			return segmentPeriod >= 0 && segmentPeriod < ratingSystem.getRatingPeriod();
+		}
+
+		void closePeriod(int ratingPeriod) {
+			if ( ratingPeriod < ratingSystem.getRatingPeriod() ) {
+				// already included in the ratings we started from
+				results.clear();
+			} else {
+				ratingSystem.updateRatings(results);
+				periodsCalculated++;
+			}
+			segmentPeriod = ratingPeriod + 1;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Works through a player's opponents one at a time. This is used wherever the vectorised kernel is not available.
+ *
+ * @author Jeremy Gooch
+ */
+class ScalarExpectationKernel implements ExpectationKernel {
+
+	@Override
+	public void accumulate(double mu, int[] opponents, double[] scores, int from, int to,
+			double[] opponentMu, double[] opponentG, double[] sums) {
+		double vSum = 0.0;
+		double outcomeSum = 0.0;
+
+		for ( int r = from; r < to; r++ ) {
+			int j = opponents[r];
+			double gj = opponentG[j];
+			double e = RatingCalculator.expectedScore(mu, opponentMu[j], gj);
+			vSum += gj * gj * e * ( 1.0 - e );
+			outcomeSum += gj * ( scores[r] - e );
+		}
+
+		sums[0] = vSum;
+		sums[1] = outcomeSum;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.io.IOException;
+
+/**
+ * A {@link RatingPeriodSource} which can say where it has got to in the archive, and go straight back there
+ * later, so that a {@link HistoricalRatingEngine} resumed from a checkpoint carries on without reading the
+ * rating periods that the checkpoint already covers.
+ *
+ * @author Jeremy Gooch
+ */
+public interface SeekableRatingPeriodSource extends RatingPeriodSource {
+
+	/**
+	 * @return where the next rating period starts, e.g. a byte offset into the archive
+	 * @throws IOException if the archive cannot be read
+	 */
+	long getPosition() throws IOException;
+
+
+	/**
+	 * Move to a position returned by {@link #getPosition()}, so that the next call to nextPeriod reads the
+	 * rating period that started there.
+	 *
+	 * @param position
+	 * @throws IOException if the archive cannot be read
+	 */
+	void seek(long position) throws IOException;
+}
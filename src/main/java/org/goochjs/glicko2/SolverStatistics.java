@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Accumulates the work done by a {@link VolatilitySolver}: how many solves were run, how many iterations
+ * they took and how many failed to converge within the solver's iteration limit.
+ *
+ * <p>This class is not thread-safe. Each thread records into its own instance, and the instances are
+ * combined with {@link #add(SolverStatistics)} once the threads have finished. The details of the last solve
+ * ({@link #getLastIterations()} and {@link #isLastConverged()}) are only meaningful on an instance that a single
+ * thread records into, such as the one each thread of a parallel update uses for its players; once instances
+ * have been combined, they describe whichever solve was added last, not the last one run.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class SolverStatistics {
+
+	private long solves = 0;
+	private long iterations = 0;
+	private long failures = 0;
+	private int maxIterations = 0;
+	private int lastIterations = 0;
+	private boolean lastConverged = true;
+
+
+	/**
+	 * Record the outcome of a single solve.
+	 *
+	 * @param iterations  number of iterations the solve took
+	 * @param converged   false if the solve stopped at its iteration limit
+	 */
+	public void record(int iterations, boolean converged) {
+		this.solves++;
+		this.iterations += iterations;
+		this.maxIterations = Math.max(maxIterations, iterations);
+		if ( ! converged ) {
+			failures++;
+		}
+		lastIterations = iterations;
+		lastConverged = converged;
+	}
+
+
+	/**
+	 * Add the totals from another set of statistics to this one. The other's solves are taken to come after
+	 * this one's, so its last solve (if it has one) becomes the last solve of this one.
+	 *
+	 * @param other
+	 */
+	public void add(SolverStatistics other) {
+		solves += other.solves;
+		iterations += other.iterations;
+		failures += other.failures;
+		maxIterations = Math.max(maxIterations, other.maxIterations);
+		if ( other.solves > 0 ) {
+			lastIterations = other.lastIterations;
+			lastConverged = other.lastConverged;
+		}
+	}
+
+
+	/**
+	 * Clear down the statistics.
+	 */
+	public void reset() {
+		solves = 0;
+		iterations = 0;
+		failures = 0;
+		maxIterations = 0;
+		lastIterations = 0;
+		lastConverged = true;
+	}
+
+
+	public long getSolves() {
+		return solves;
+	}
+
+	public long getIterations() {
+		return iterations;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @return the number of iterations taken by the most recently recorded solve (see the class description)
+	 */
+	public int getLastIterations() {
+		return lastIterations;
+	}
+
+	/**
+	 * @return whether the most recently recorded solve converged (see the class description)
+	 */
+	public boolean isLastConverged() {
+		return lastConverged;
+	}
+
+	/**
+	 * @return the average number of iterations per solve
+	 */
+	public double getMeanIterations() {
+		return solves == 0 ? 0 : (double) iterations / solves;
+	}
+
+
+	/**
+	 * Returns the statistics for inspection
+	 *
+	 * @return {solves} / {meanIterations} / {maxIterations} / {failures}
+	 */
+	@Override
+	public String toString() {
+		return solves + " / " +
+				getMeanIterations() + " / " +
+				maxIterations + " / " +
+				failures;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import java.util.Arrays;
+
+/**
+ * Folds the results of a rating period into running per-player sums as they arrive, rather than holding them,
+ * for use with {@link ColumnarRatingCalculator#updateRatings(ColumnarRatings, StreamingResults)}.
+ *
+ * <p>Steps 3 and 4 of Glickman's paper only need each player's sums of g(phi)^2 * E * (1 - E) and g(phi) * (s - E)
+ * over their results, and those only depend on ratings from before the period, which do not change until it is
+ * closed. So each result can be folded into both of its players' sums the moment it is recorded, and then
+ * forgotten. Memory depends on the number of players, not the number of games played in the period.</p>
+ *
+ * <p>The sums are added up in the order in which results are recorded, which is also the order that the calculator's
+ * scalar kernel uses for a {@link ColumnarResults}, so the two give identical ratings with that kernel. The vectorised
+ * kernel adds the sums up in a different order, so against it they are only equal within floating-point tolerance.
+ * Players added to the ratings part way
+ * through the period are picked up as they first appear in a result. This class is not thread-safe.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public class StreamingResults {
+
+	private final ColumnarRatings ratings;
+
+	private double[] g = new double[0];
+	private double[] vSums = new double[0];
+	private double[] outcomeSums = new double[0];
+	private int[] games = new int[0];
+	private int players = 0; // players whose g() has been taken from the ratings this period
+	private long size = 0;
+
+
+	/**
+	 * @param ratings  the ratings against which results are recorded, and which will be updated when the period is closed
+	 */
+	public StreamingResults(ColumnarRatings ratings) {
+		this.ratings = ratings;
+		ensurePlayers(ratings.size());
+	}
+
+
+	/**
+	 * Add a result to the period's sums.
+	 *
+	 * @param winner  id of the winning player
+	 * @param loser   id of the losing player
+	 */
+	public void addResult(int winner, int loser) {
+		add(winner, loser, 1, 1.0, 0.0);
+	}
+
+
+	/**
+	 * Add a draw between two players to the period's sums.
+	 *
+	 * @param player1
+	 * @param player2
+	 */
+	public void addDraw(int player1, int player2) {
+		add(player1, player2, 1, 0.5, 0.5);
+	}
+
+
+	/**
+	 * Add a series of games between two players to the period's sums.
+	 *
+	 * @param player1
+	 * @param player2
+	 * @param wins    games won by player1
+	 * @param losses  games lost by player1
+	 * @param draws   games drawn
+	 */
+	public void addResults(int player1, int player2, int wins, int losses, int draws) {
+		if ( wins < 0 || losses < 0 || draws < 0 || wins + losses + draws == 0 ) {
+			throw new IllegalArgumentException("A series must contain at least one game and no negative counts");
+		}
+
+		add(player1, player2, wins + losses + draws, wins + ( 0.5 * draws ), losses + ( 0.5 * draws ));
+	}
+
+
+	private void add(int player1, int player2, int n, double score1, double score2) {
+		if ( player1 == player2 ) {
+			throw new IllegalArgumentException();
+		}
+		if ( player1 < 0 || player2 < 0 || Math.max(player1, player2) >= ratings.size() ) {
+			throw new IllegalArgumentException("Result refers to an unknown player");
+		}
+		ensurePlayers(Math.max(player1, player2) + 1);
+
+		double mu1 = ratings.mu()[player1];
+		double mu2 = ratings.mu()[player2];
+		double e1 = RatingCalculator.expectedScore(mu1, mu2, g[player2]);
+		double e2 = RatingCalculator.expectedScore(mu2, mu1, g[player1]);
+
+		if ( n == 1 ) {
+			accumulate(player1, g[player2], e1, score1);
+			accumulate(player2, g[player1], e2, score2);
+		} else {
+			vSums[player1] += n * ( g[player2] * g[player2] * e1 * ( 1.0 - e1 ) );
+			outcomeSums[player1] += g[player2] * ( score1 - ( n * e1 ) );
+			vSums[player2] += n * ( g[player1] * g[player1] * e2 * ( 1.0 - e2 ) );
+			outcomeSums[player2] += g[player1] * ( score2 - ( n * e2 ) );
+		}
+
+		games[player1] += n;
+		games[player2] += n;
+		size += n;
+	}
+
+
+	private void accumulate(int player, double opponentG, double e, double score) {
+		vSums[player] += opponentG * opponentG * e * ( 1.0 - e );
+		outcomeSums[player] += opponentG * ( score - e );
+	}
+
+
+	/**
+	 * Take g() of the deviation of any players not yet seen this period, from their ratings going into it.
+	 */
+	void ensurePlayers(int n) {
+		if ( n <= players ) {
+			return;
+		}
+
+		if ( g.length < n ) {
+			int capacity = Math.max(n, g.length + ( g.length >> 1 ));
+			g = Arrays.copyOf(g, capacity);
+			vSums = Arrays.copyOf(vSums, capacity);
+			outcomeSums = Arrays.copyOf(outcomeSums, capacity);
+			games = Arrays.copyOf(games, capacity);
+		}
+
+		double[] phi = ratings.phi();
+		for ( int i = players; i < n; i++ ) {
+			g[i] = RatingCalculator.g(phi[i]);
+		}
+		players = n;
+	}
+
+
+	/**
+	 * @return the number of games recorded in the period
+	 */
+	public long size() {
+		return size;
+	}
+
+
+	/**
+	 * @param id
+	 * @return the number of games the player has played in the period
+	 */
+	public int getNumberOfResults(int id) {
+		return id < players ? games[id] : 0;
+	}
+
+
+	/**
+	 * Clear the period's sums, ready for the next rating period.
+	 */
+	public void clear() {
+		Arrays.fill(vSums, 0, players, 0.0);
+		Arrays.fill(outcomeSums, 0, players, 0.0);
+		Arrays.fill(games, 0, players, 0);
+		size = 0;
+
+		// the ratings will have moved on, so g() is taken afresh for everyone
+		players = 0;
+		ensurePlayers(ratings.size());
+	}
+
+
+	// direct access to the sums for the calculation engine
+
+	ColumnarRatings ratings() {
+		return ratings;
+	}
+
+	double[] vSums() {
+		return vSums;
+	}
+
+	double[] outcomeSums() {
+		return outcomeSums;
+	}
+
+	int[] games() {
+		return games;
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+/**
+ * Solves for a player's new volatility, as described in step 5 of Glickman's paper.
+ *
+ * <p>Implementations must be stateless, as a single solver is shared by every thread calculating ratings.</p>
+ *
+ * @author Jeremy Gooch
+ */
+public interface VolatilitySolver {
+
+	/**
+	 * Find the new volatility of a player.
+	 *
+	 * @param phi         player's rating deviation (Glicko2 scale)
+	 * @param sigma       player's volatility
+	 * @param delta       estimated improvement in rating, from step 4
+	 * @param v           estimated variance of the rating based on game outcomes, from step 3
+	 * @param tau         system constant constraining the change in volatility over time
+	 * @param statistics  receives the number of iterations taken, and whether the solve converged
+	 * @return new volatility
+	 */
+	double solve(double phi, double sigma, double delta, double v, double tau, SolverStatistics statistics);
+}
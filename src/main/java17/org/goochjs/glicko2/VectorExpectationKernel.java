@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Works through a player's opponents a whole vector register at a time, using the JDK's incubating Vector API.
+ *
+ * <p>The opponents' ratings and g() values are gathered by id into vector lanes, and each lane keeps its own
+ * running sums, which are added together at the end. The sums are therefore added in a different order from
+ * {@link ScalarExpectationKernel}, and can differ from it in the last few bits. Opponents left over once the
+ * vectors are full are handled one at a time.</p>
+ *
+ * <p>This class is compiled for Java 17 by the "vector" build profile, and is only loaded when the JVM has been
+ * started with {@code --add-modules jdk.incubator.vector}.</p>
+ *
+ * @author Jeremy Gooch
+ */
+class VectorExpectationKernel implements ExpectationKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1.0);
+
+	@Override
+	public void accumulate(double mu, int[] opponents, double[] scores, int from, int to,
+			double[] opponentMu, double[] opponentG, double[] sums) {
+		DoubleVector vSums = DoubleVector.zero(SPECIES);
+		DoubleVector outcomeSums = DoubleVector.zero(SPECIES);
+		int r = from;
+		int upperBound = from + SPECIES.loopBound(to - from);
+
+		for ( ; r < upperBound; r += SPECIES.length() ) {
+			DoubleVector g = DoubleVector.fromArray(SPECIES, opponentG, 0, opponents, r);
+			DoubleVector oppMu = DoubleVector.fromArray(SPECIES, opponentMu, 0, opponents, r);
+			DoubleVector s = DoubleVector.fromArray(SPECIES, scores, r);
+
+			// E = 1 / (1 + exp(-g * (mu - oppMu)))
+			DoubleVector exponent = g.neg().mul(oppMu.neg().add(mu));
+			DoubleVector e = ONE.div(exponent.lanewise(VectorOperators.EXP).add(1.0));
+
+			vSums = g.mul(g).mul(e).mul(ONE.sub(e)).add(vSums);
+			outcomeSums = g.mul(s.sub(e)).add(outcomeSums);
+		}
+
+		double vSum = vSums.reduceLanes(VectorOperators.ADD);
+		double outcomeSum = outcomeSums.reduceLanes(VectorOperators.ADD);
+
+		for ( ; r < to; r++ ) {
+			int j = opponents[r];
+			double gj = opponentG[j];
+			double e = RatingCalculator.expectedScore(mu, opponentMu[j], gj);
+			vSum += gj * gj * e * ( 1.0 - e );
+			outcomeSum += gj * ( scores[r] - e );
+		}
+
+		sums[0] = vSum;
+		sums[1] = outcomeSum;
+	}
+}
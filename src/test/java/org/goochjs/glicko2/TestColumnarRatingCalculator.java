@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the columnar engine agrees with the object-based one.
+ *
+ * @author Jeremy Gooch
+ */
+public class TestColumnarRatingCalculator {
+
+	private RatingCalculator ratingSystem = new RatingCalculator(0.06, 0.5);
+
+	@Test
+	public void testGlickmanExample() {
+		ColumnarRatings ratings = new ColumnarRatings();
+		int player1 = ratings.addPlayer(1500, 200, 0.06);
+		int player2 = ratings.addPlayer(1400, 30, 0.06);
+		int player3 = ratings.addPlayer(1550, 100, 0.06);
+		int player4 = ratings.addPlayer(1700, 300, 0.06);
+		int player5 = ratings.addPlayer(ratingSystem); // this player won't compete
+
+		ColumnarResults results = new ColumnarResults();
+		results.addResult(player1, player2);
+		results.addResult(player3, player1);
+		results.addResult(player4, player1);
+
+		new ColumnarRatingCalculator(ratingSystem).updateRatings(ratings, results);
+
+		assertEquals( 1464.06, ratings.getRating(player1), 0.01 );
+		assertEquals( 151.52, ratings.getRatingDeviation(player1), 0.01 );
+		assertEquals( 0.05999, ratings.getVolatility(player1), 0.01 );
+		assertEquals( 3, ratings.getNumberOfResults(player1) );
+
+		assertEquals( ratingSystem.getDefaultRating(), ratings.getRating(player5), 0.0000001 );
+		assertEquals( RatingCalculator.calculateNewRD(
+				RatingCalculator.convertRatingDeviationToGlicko2Scale(350), 0.06), ratings.getGlicko2RatingDeviation(player5), 0 );
+		assertEquals( 0, results.size() );
+	}
+
+	@Test
+	public void testMatchesRatingCalculator() {
+		Random random = new Random(3);
+		List<Rating> players = new ArrayList<Rating>();
+		for ( int i = 0; i < 500; i++ ) {
+			players.add(new Rating("player" + i, ratingSystem,
+					1500 + random.nextGaussian() * 300, 50 + random.nextDouble() * 300, 0.06));
+		}
+		ColumnarRatings columns = ColumnarRatings.fromRatings(players);
+
+		RatingPeriodResults results = new RatingPeriodResults();
+		ColumnarResults columnarResults = new ColumnarResults();
+		ColumnarRatingCalculator columnarSystem = new ColumnarRatingCalculator(ratingSystem);
+
+		for ( int period = 0; period < 3; period++ ) {
+			for ( Rating player : players ) {
+				results.addParticipants(player);
+			}
+			for ( int i = 0; i < 2000; i++ ) {
+				int p1 = random.nextInt(players.size());
+				int p2 = random.nextInt(players.size());
+				if ( p1 == p2 ) {
+					continue;
+				} else if ( random.nextInt(5) == 0 ) {
+					results.addDraw(players.get(p1), players.get(p2));
+					columnarResults.addDraw(p1, p2);
+				} else {
+					results.addResult(players.get(p1), players.get(p2));
+					columnarResults.addResult(p1, p2);
+				}
+			}
+
+			ratingSystem.updateRatings(results);
+			columnarSystem.updateRatings(columns, columnarResults);
+		}
+
+		for ( int i = 0; i < players.size(); i++ ) {
+			assertEquals( players.get(i).getRating(), columns.getRating(i), 0.000001 );
+			assertEquals( players.get(i).getRatingDeviation(), columns.getRatingDeviation(i), 0.000001 );
+			assertEquals( players.get(i).getVolatility(), columns.getVolatility(i), 0.000001 );
+			assertEquals( players.get(i).getNumberOfResults(), columns.getNumberOfResults(i) );
+		}
+
+		// and back again
+		List<Rating> copies = new ArrayList<Rating>();
+		for ( int i = 0; i < players.size(); i++ ) {
+			copies.add(new Rating("copy" + i, ratingSystem));
+		}
+		columns.copyTo(copies);
+		assertEquals( columns.getRating(10), copies.get(10).getRating(), 0.0000001 );
+		assertEquals( columns.getNumberOfResults(10), copies.get(10).getNumberOfResults() );
+	}
+
+	@Test
+	public void testMappedRatingStore() throws IOException {
+		File file = File.createTempFile("ratings", ".dat");
+		file.delete();
+		file.deleteOnExit();
+
+		Random random = new Random(5);
+		ColumnarRatings columns = new ColumnarRatings();
+		MappedRatingStore store = new MappedRatingStore(file.getPath());
+		for ( int i = 0; i < 300; i++ ) {
+			double rating = 1500 + random.nextGaussian() * 300;
+			double deviation = 50 + random.nextDouble() * 300;
+			columns.addPlayer(rating, deviation, 0.06);
+			store.addPlayer(rating, deviation, 0.06);
+		}
+
+		ColumnarRatingCalculator columnarSystem = new ColumnarRatingCalculator(ratingSystem);
+		ColumnarResults columnarResults = new ColumnarResults();
+		ColumnarResults storeResults = new ColumnarResults();
+
+		for ( int period = 0; period < 4; period++ ) {
+			// only the first half of the population competes in the odd periods, leaving the others idle
+			int competing = period % 2 == 0 ? columns.size() : columns.size() / 2;
+			for ( int i = 0; i < 400; i++ ) {
+				int p1 = random.nextInt(competing);
+				int p2 = random.nextInt(competing);
+				if ( p1 != p2 ) {
+					columnarResults.addResult(p1, p2);
+					storeResults.addResult(p1, p2);
+				}
+			}
+
+			columnarSystem.updateRatings(columns, columnarResults);
+			columnarSystem.updateRatings(store, storeResults);
+		}
+		store.close();
+
+		// reopen the file, and check that it holds the same ratings as the in-memory engine
+		store = new MappedRatingStore(file.getPath());
+		assertEquals( columns.size(), store.size() );
+		assertEquals( 4, store.getRatingPeriod() );
+		for ( int i = 0; i < columns.size(); i++ ) {
+			assertEquals( columns.getRating(i), store.getRating(i), 0.000001 );
+			assertEquals( columns.getRatingDeviation(i), store.getRatingDeviation(i), 0.000001 );
+			assertEquals( columns.getVolatility(i), store.getVolatility(i), 0.000001 );
+			assertEquals( columns.getNumberOfResults(i), store.getNumberOfResults(i) );
+		}
+		store.close();
+
+		// the file is little-endian whatever the platform, and a store in any other format is refused
+		RandomAccessFile raw = new RandomAccessFile(file, "rw");
+		try {
+			assertEquals( 0x476c6b32, Integer.reverseBytes(raw.readInt()) );
+			raw.seek(0);
+			raw.writeInt(0x476c6b32);
+			try {
+				new MappedRatingStore(file.getPath());
+				fail("Opened a store in the wrong byte order");
+			} catch (IOException e) {
+				// expected
+			}
+			raw.seek(0);
+			raw.writeInt(Integer.reverseBytes(0x476c6b32));
+			raw.writeInt(Integer.reverseBytes(1));
+			try {
+				new MappedRatingStore(file.getPath());
+				fail("Opened a store of an earlier format");
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			raw.close();
+		}
+	}
+
+	@Test
+	public void testHistoricalRatingEngine() throws IOException {
+		final List<int[]> archive = new ArrayList<int[]>();
+		Random random = new Random(11);
+		for ( int period = 0; period < 10; period++ ) {
+			int players = 20 + period * 10;  // new players join as the archive goes on
+			int[] games = new int[400];
+			for ( int i = 0; i < games.length; i += 2 ) {
+				games[i] = random.nextInt(players);
+				games[i + 1] = ( games[i] + 1 + random.nextInt(players - 1) ) % players;
+			}
+			archive.add(games);
+		}
+
+		RatingCalculator[] settings = { new RatingCalculator(0.06, 0.3), new RatingCalculator(0.06, 1.2) };
+
+		// the reference results come from rating each setting on its own, a period at a time
+		ColumnarRatings[] expected = new ColumnarRatings[settings.length];
+		for ( int s = 0; s < settings.length; s++ ) {
+			expected[s] = new ColumnarRatings();
+			ColumnarRatingCalculator calculator = new ColumnarRatingCalculator(settings[s]);
+			ColumnarResults results = new ColumnarResults();
+			for ( int[] games : archive ) {
+				for ( int i = 0; i < games.length; i += 2 ) {
+					while ( expected[s].size() <= Math.max(games[i], games[i + 1]) ) {
+						expected[s].addPlayer(settings[s]);
+					}
+					results.addResult(games[i], games[i + 1]);
+				}
+				calculator.updateRatings(expected[s], results);
+			}
+		}
+
+		File checkpoint = File.createTempFile("glicko2", ".checkpoint");
+		try {
+			// the first run only gets as far as period 7 of the archive, and is checkpointed when it stops
+			HistoricalRatingEngine interrupted = new HistoricalRatingEngine(settings);
+			interrupted.setCheckpoint(checkpoint.getPath(), 3);
+			assertEquals( 7, interrupted.run(archiveSource(archive.subList(0, 7), new int[1])) );
+
+			// a different setting is refused, as is a damaged checkpoint
+			try {
+				new HistoricalRatingEngine(settings[0], new RatingCalculator(0.06, 1.0)).resume(checkpoint.getPath());
+				fail("Resumed with a different tau");
+			} catch (IOException e) {
+				// expected
+			}
+			File damaged = File.createTempFile("glicko2", ".checkpoint");
+			try {
+				byte[] bytes = Files.readAllBytes(checkpoint.toPath());
+				bytes[bytes.length / 2] ^= 1;
+				Files.write(damaged.toPath(), bytes);
+				new HistoricalRatingEngine(settings).resume(damaged.getPath());
+				fail("Resumed from a damaged checkpoint");
+			} catch (IOException e) {
+				// expected
+			} finally {
+				damaged.delete();
+			}
+
+			// the archive is seekable, so the resumed run goes straight to period 7 and reads only the last three
+			HistoricalRatingEngine engine = new HistoricalRatingEngine(settings);
+			engine.resume(checkpoint.getPath());
+			assertEquals( 7, engine.getRatingPeriod() );
+			int[] reads = new int[1];
+			assertEquals( 3, engine.run(archiveSource(archive, reads)) );
+			assertEquals( 4, reads[0] );  // including the call that finds the end of the archive
+
+			for ( int s = 0; s < settings.length; s++ ) {
+				ColumnarRatings actual = engine.getRatings(s);
+				assertEquals( expected[s].size(), actual.size() );
+				for ( int id = 0; id < actual.size(); id++ ) {
+					assertEquals( expected[s].getGlicko2Rating(id), actual.getGlicko2Rating(id), 0 );
+					assertEquals( expected[s].getGlicko2RatingDeviation(id), actual.getGlicko2RatingDeviation(id), 0 );
+					assertEquals( expected[s].getVolatility(id), actual.getVolatility(id), 0 );
+					assertEquals( expected[s].getNumberOfResults(id), actual.getNumberOfResults(id) );
+				}
+			}
+		} finally {
+			checkpoint.delete();
+		}
+	}
+
+	/**
+	 * The vectorised kernel is only in use when the JVM allows it (see the vector profile); otherwise the test is skipped.
+	 */
+	@Test
+	public void testVectorisedKernel() {
+		Random random = new Random(5);
+		ColumnarRatings scalar = new ColumnarRatings();
+		ColumnarRatings vectorised = new ColumnarRatings();
+		ColumnarResults scalarResults = new ColumnarResults();
+		ColumnarResults vectorisedResults = new ColumnarResults();
+
+		for ( int i = 0; i < 300; i++ ) {
+			double rating = 1500 + random.nextGaussian() * 300;
+			double deviation = 50 + random.nextDouble() * 300;
+			scalar.addPlayer(rating, deviation, 0.06);
+			vectorised.addPlayer(rating, deviation, 0.06);
+		}
+		for ( int i = 0; i < 20000; i++ ) {
+			int p1 = random.nextInt(scalar.size());
+			int p2 = ( p1 + 1 + random.nextInt(scalar.size() - 1) ) % scalar.size();
+			scalarResults.addResult(p1, p2);
+			vectorisedResults.addResult(p1, p2);
+		}
+
+		ColumnarRatingCalculator scalarCalculator = new ColumnarRatingCalculator(ratingSystem);
+		scalarCalculator.setVectorised(false);
+		ColumnarRatingCalculator vectorisedCalculator = new ColumnarRatingCalculator(ratingSystem);
+		vectorisedCalculator.setVectorised(true);
+		assumeTrue( vectorisedCalculator.isVectorised() );
+		scalarCalculator.updateRatings(scalar, scalarResults);
+		vectorisedCalculator.updateRatings(vectorised, vectorisedResults);
+
+		for ( int id = 0; id < scalar.size(); id++ ) {
+			assertEquals( scalar.getRating(id), vectorised.getRating(id), 0.000001 );
+			assertEquals( scalar.getRatingDeviation(id), vectorised.getRatingDeviation(id), 0.000001 );
+			assertEquals( scalar.getVolatility(id), vectorised.getVolatility(id), 0.000000001 );
+		}
+	}
+
+	@Test
+	public void testStreamingResults() {
+		Random random = new Random(17);
+		ColumnarRatings batch = new ColumnarRatings();
+		ColumnarRatings defaultBatch = new ColumnarRatings();
+		ColumnarRatings streamed = new ColumnarRatings();
+		for ( int i = 0; i < 100; i++ ) {
+			double rating = 1500 + random.nextGaussian() * 300;
+			double deviation = 50 + random.nextDouble() * 300;
+			batch.addPlayer(rating, deviation, 0.06);
+			defaultBatch.addPlayer(rating, deviation, 0.06);
+			streamed.addPlayer(rating, deviation, 0.06);
+		}
+
+		// streaming adds up the sums in the same order as the scalar kernel, but not the vectorised one
+		ColumnarRatingCalculator calculator = new ColumnarRatingCalculator(ratingSystem);
+		calculator.setVectorised(false);
+		ColumnarRatingCalculator defaultCalculator = new ColumnarRatingCalculator(ratingSystem);
+		ColumnarResults batchResults = new ColumnarResults();
+		ColumnarResults defaultResults = new ColumnarResults();
+		StreamingResults streamedResults = new StreamingResults(streamed);
+
+		for ( int period = 0; period < 3; period++ ) {
+			if ( period == 1 ) {
+				// a player who joins part way through the period
+				batch.addPlayer(ratingSystem);
+				defaultBatch.addPlayer(ratingSystem);
+				streamed.addPlayer(ratingSystem);
+			}
+			for ( int i = 0; i < 2000; i++ ) {
+				int p1 = random.nextInt(batch.size());
+				int p2 = ( p1 + 1 + random.nextInt(batch.size() - 1) ) % batch.size();
+				if ( i % 7 == 0 ) {
+					batchResults.addDraw(p1, p2);
+					defaultResults.addDraw(p1, p2);
+					streamedResults.addDraw(p1, p2);
+				} else {
+					batchResults.addResult(p1, p2);
+					defaultResults.addResult(p1, p2);
+					streamedResults.addResult(p1, p2);
+				}
+			}
+			assertEquals( 2000, streamedResults.size() );
+
+			defaultCalculator.updateRatings(defaultBatch, defaultResults);
+			calculator.updateRatings(batch, batchResults);
+			calculator.updateRatings(streamed, streamedResults);
+		}
+
+		for ( int id = 0; id < batch.size(); id++ ) {
+			assertEquals( batch.getGlicko2Rating(id), streamed.getGlicko2Rating(id), 0 );
+			assertEquals( batch.getGlicko2RatingDeviation(id), streamed.getGlicko2RatingDeviation(id), 0 );
+			assertEquals( batch.getVolatility(id), streamed.getVolatility(id), 0 );
+			assertEquals( batch.getNumberOfResults(id), streamed.getNumberOfResults(id) );
+			assertEquals( defaultBatch.getGlicko2Rating(id), streamed.getGlicko2Rating(id), 0.000000001 );
+			assertEquals( defaultBatch.getGlicko2RatingDeviation(id), streamed.getGlicko2RatingDeviation(id), 0.000000001 );
+			assertEquals( defaultBatch.getVolatility(id), streamed.getVolatility(id), 0.000000001 );
+		}
+	}
+
+	/**
+	 * @param reads  counts the calls to nextPeriod
+	 */
+	private SeekableRatingPeriodSource archiveSource(final List<int[]> archive, final int[] reads) {
+		return new SeekableRatingPeriodSource() {
+			private int period = 0;
+
+			@Override
+			public boolean nextPeriod(ColumnarResults results) {
+				reads[0]++;
+				if ( period == archive.size() ) {
+					return false;
+				}
+				int[] games = archive.get(period++);
+				for ( int i = 0; i < games.length; i += 2 ) {
+					results.addResult(games[i], games[i + 1]);
+				}
+				return true;
+			}
+
+			@Override
+			public long getPosition() {
+				return period;
+			}
+
+			@Override
+			public void seek(long position) {
+				period = (int) position;
+			}
+		};
+	}
+}
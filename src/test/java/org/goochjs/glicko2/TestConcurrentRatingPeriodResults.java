@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Records results from several threads at once and checks that none of them are lost.
+ *
+ * @author Jeremy Gooch
+ */
+public class TestConcurrentRatingPeriodResults {
+
+	private static final int THREADS = 8;
+	private static final int RESULTS_PER_THREAD = 5000;
+
+	private RatingCalculator ratingSystem = new RatingCalculator(0.06, 0.5);
+
+	@Test
+	public void testConcurrentIngestion() throws InterruptedException {
+		final Rating[] players = new Rating[100];
+		for ( int i = 0; i < players.length; i++ ) {
+			players[i] = new Rating("player" + i, ratingSystem);
+		}
+
+		final ConcurrentRatingPeriodResults results = new ConcurrentRatingPeriodResults();
+		RatingPeriodStatistics statistics = new RatingPeriodStatistics();
+		results.setListener(statistics);
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[THREADS];
+
+		for ( int t = 0; t < THREADS; t++ ) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for ( int i = 0; i < RESULTS_PER_THREAD; i++ ) {
+						int p1 = random.nextInt(players.length);
+						int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+						if ( i % 10 == 0 ) {
+							results.addDraw(players[p1], players[p2]);
+						} else {
+							results.addResult(players[p1], players[p2]);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		start.countDown();
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+
+		assertEquals( players.length, results.getParticipants().size() );
+		int total = 0;
+		for ( Rating player : players ) {
+			total += results.getResults(player).size();
+		}
+		assertEquals( THREADS * RESULTS_PER_THREAD * 2, total );
+		assertEquals( THREADS * RESULTS_PER_THREAD, statistics.getResultsGathered() );
+
+		ratingSystem.updateRatings(results);
+
+		total = 0;
+		for ( Rating player : players ) {
+			total += player.getNumberOfResults();
+		}
+		assertEquals( THREADS * RESULTS_PER_THREAD * 2, total );
+		assertEquals( 0, results.getResults(players[0]).size() );
+	}
+
+	@Test
+	public void testResultsHeldOverUntilGathered() {
+		Rating player1 = new Rating("player1", ratingSystem);
+		Rating player2 = new Rating("player2", ratingSystem);
+		ConcurrentRatingPeriodResults results = new ConcurrentRatingPeriodResults();
+
+		results.addResult(player1, player2);
+		assertEquals( 1, results.getResults(player1).size() );  // asking for a player's results gathers them in
+
+		results.getParticipants();
+		results.addResult(player2, player1);  // arrives after the period has started to close
+		results.clear();
+
+		assertEquals( 2, results.getParticipants().size() );
+		assertEquals( 1, results.getResults(player1).size() );
+	}
+
+	/**
+	 * Reads players' results while other threads are still recording them, and checks that each read sees
+	 * a consistent, growing list.
+	 */
+	@Test
+	public void testReadWhileRecording() throws InterruptedException {
+		final Rating[] players = new Rating[20];
+		for ( int i = 0; i < players.length; i++ ) {
+			players[i] = new Rating("player" + i, ratingSystem);
+		}
+
+		final ConcurrentRatingPeriodResults results = new ConcurrentRatingPeriodResults();
+		Thread[] threads = new Thread[THREADS];
+
+		for ( int t = 0; t < THREADS; t++ ) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					for ( int i = 0; i < RESULTS_PER_THREAD; i++ ) {
+						int p1 = random.nextInt(players.length);
+						int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+						if ( i % 10 == 0 ) {
+							results.addRankedResult(players[p1], players[p2]);
+						} else {
+							results.addResult(players[p1], players[p2]);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		int[] seen = new int[players.length];
+		boolean recording = true;
+		while ( recording ) {
+			recording = false;
+			for ( Thread thread : threads ) {
+				recording |= thread.isAlive();
+			}
+			for ( int i = 0; i < players.length; i++ ) {
+				int count = results.getResults(players[i]).size() + results.getRankedResults(players[i]).size();
+				assertTrue( count >= seen[i] );
+				seen[i] = count;
+			}
+		}
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+
+		int total = 0;
+		for ( Rating player : players ) {
+			total += results.getResults(player).size() + results.getRankedResults(player).size();
+		}
+		assertEquals( THREADS * RESULTS_PER_THREAD * 2, total );
+	}
+
+	/**
+	 * Keeps recording results while periods are being closed, and checks that every result lands in exactly one period.
+	 */
+	@Test
+	public void testPeriodRollover() throws InterruptedException, ExecutionException {
+		final Rating[] players = new Rating[50];
+		for ( int i = 0; i < players.length; i++ ) {
+			players[i] = new Rating("player" + i, ratingSystem);
+		}
+
+		final RatingPeriodManager manager = new RatingPeriodManager(ratingSystem);
+		Thread[] threads = new Thread[THREADS];
+
+		for ( int t = 0; t < THREADS; t++ ) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					for ( int i = 0; i < RESULTS_PER_THREAD; i++ ) {
+						int p1 = random.nextInt(players.length);
+						int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+						manager.addResult(players[p1], players[p2]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		Future<RatingPeriodResults> last = null;
+		for ( int period = 0; period < 10; period++ ) {
+			last = manager.closePeriod();
+			Thread.sleep(1);
+		}
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		last = manager.closePeriod();
+		last.get();
+		manager.shutdown();
+
+		int total = 0;
+		for ( Rating player : players ) {
+			total += player.getNumberOfResults();
+		}
+		assertEquals( THREADS * RESULTS_PER_THREAD * 2, total );
+		assertEquals( 11, ratingSystem.getRatingPeriod() );
+		assertEquals( players.length, manager.getCurrentResults().getParticipants().size() );
+	}
+}
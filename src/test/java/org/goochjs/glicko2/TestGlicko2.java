@@ -7,8 +7,24 @@
 package org.goochjs.glicko2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.After;
 import org.junit.Test;
 
 /**
@@ -24,6 +40,12 @@ public class TestGlicko2 {
 	private Rating player3 = new Rating("player3", ratingSystem);
 	private Rating player4 = new Rating("player4", ratingSystem);
 	private Rating player5 = new Rating("player5", ratingSystem); // this player won't compete during the test
+	private ForkJoinPool pool = new ForkJoinPool(4); // for the tests of parallel updates, shut down after each test
+	
+	@After
+	public void shutdownPool() {
+		pool.shutdown();
+	}
 	
 	/**
 	 * This test uses the values from the example towards the end of Glickman's paper as a simple test of the calculation engine
@@ -57,6 +79,653 @@ public class TestGlicko2 {
 		assertEquals( ratingSystem.getDefaultVolatility(), player5.getVolatility(), 0 );  // volatility should be unaffected
 	}
 	
+	/**
+	 * Runs the same rating period through the sequential and parallel engines and checks that they agree exactly.
+	 */
+	@Test
+	public void testParallelUpdate() {
+		Rating[] sequential = createPopulation(2000);
+		Rating[] parallel = createPopulation(2000);
+		RatingPeriodResults sequentialResults = new RatingPeriodResults();
+		RatingPeriodResults parallelResults = new RatingPeriodResults();
+		Random random = new Random(42);
+		
+		for ( int i = 0; i < 10000; i++ ) {
+			int p1 = random.nextInt(sequential.length);
+			int p2 = random.nextInt(sequential.length);
+			
+			if ( p1 == p2 ) {
+				continue;
+			} else if ( random.nextInt(10) == 0 ) {
+				sequentialResults.addDraw(sequential[p1], sequential[p2]);
+				parallelResults.addDraw(parallel[p1], parallel[p2]);
+			} else {
+				sequentialResults.addResult(sequential[p1], sequential[p2]);
+				parallelResults.addResult(parallel[p1], parallel[p2]);
+			}
+		}
+		
+		ratingSystem.updateRatings(sequentialResults);
+		ratingSystem.updateRatings(parallelResults, pool);
+		
+		for ( int i = 0; i < sequential.length; i++ ) {
+			assertEquals( sequential[i].getRating(), parallel[i].getRating(), 0 );
+			assertEquals( sequential[i].getRatingDeviation(), parallel[i].getRatingDeviation(), 0 );
+			assertEquals( sequential[i].getVolatility(), parallel[i].getVolatility(), 0 );
+			assertEquals( sequential[i].getNumberOfResults(), parallel[i].getNumberOfResults() );
+		}
+	}
+	
+	/**
+	 * Checks that deferring the deviation increase of idle players gives the same ratings as applying it every period.
+	 */
+	@Test
+	public void testLazyInactivity() {
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		Rating[] eager = createPopulation(200);
+		Rating[] lazy = createPopulation(200, lazySystem);
+		RatingPeriodResults eagerResults = new RatingPeriodResults();
+		RatingPeriodResults lazyResults = new RatingPeriodResults();
+		Random random = new Random(11);
+		
+		for ( Rating player : eager ) {
+			eagerResults.addParticipants(player);
+		}
+		
+		for ( int period = 0; period < 6; period++ ) {
+			// a different tenth of the population is active in each period
+			for ( int i = 0; i < 100; i++ ) {
+				int p1 = ( period * 20 ) % 200 + random.nextInt(20);
+				int p2 = ( period * 20 ) % 200 + random.nextInt(20);
+				if ( p1 != p2 ) {
+					eagerResults.addResult(eager[p1], eager[p2]);
+					lazyResults.addResult(lazy[p1], lazy[p2]);
+				}
+			}
+			
+			ratingSystem.updateRatings(eagerResults);
+			lazySystem.updateRatings(lazyResults);
+		}
+		
+		for ( int i = 0; i < eager.length; i++ ) {
+			assertEquals( eager[i].getRating(), lazy[i].getRating(), 0.000001 );
+			assertEquals( eager[i].getRatingDeviation(), lazySystem.getCurrentRatingDeviation(lazy[i]), 0.000001 );
+			assertEquals( eager[i].getVolatility(), lazy[i].getVolatility(), 0.000001 );
+		}
+		assertEquals( 6, lazySystem.getRatingPeriod() );
+		assertEquals( 0, lazy[199].getLastRatedPeriod() );  // never competed, so never touched
+	}
+	
+	/**
+	 * Checks the expected scores against the values of E given in Glickman's example.
+	 */
+	@Test
+	public void testMatchPredictor() {
+		initialise();
+		MatchPredictor predictor = new MatchPredictor(Arrays.asList(player1, player2, player3, player4), ratingSystem);
+		double[] expectedScores = new double[3];
+		
+		predictor.expectedScores(0, new int[] { 1, 2, 3 }, expectedScores);
+		
+		assertEquals( 0.639, expectedScores[0], 0.001 );
+		assertEquals( 0.432, expectedScores[1], 0.001 );
+		assertEquals( 0.303, expectedScores[2], 0.001 );
+		assertEquals( predictor.matchQuality(0, 2), predictor.matchQuality(2, 0), 0.000000001 );
+		assertEquals( 1, predictor.bestMatch(0, new int[] { 0, 2, 3 }) );  // player3 is the closest to player1
+		
+		// with lazy inactivity, an opponent's missed rating periods widen their deviation
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		Rating player = new Rating("player", lazySystem);
+		Rating idle = new Rating("idle", lazySystem, 1700, 50, 0.06);
+		lazySystem.setRatingPeriod(20);
+		MatchPredictor lazyPredictor = new MatchPredictor(Arrays.asList(player, idle), lazySystem);
+		
+		assertEquals( RatingCalculator.E(player.getGlicko2Rating(), idle.getGlicko2Rating(),
+				RatingCalculator.convertRatingDeviationToGlicko2Scale(lazySystem.getCurrentRatingDeviation(idle))),
+				lazyPredictor.expectedScore(0, 1), 0.000000001 );
+		assertTrue( lazySystem.getCurrentRatingDeviation(idle) > idle.getRatingDeviation() );
+	}
+	
+	@Test
+	public void testRatingPeriodStatistics() {
+		RatingCalculator listenedSystem = new RatingCalculator(0.06, 0.5);
+		RatingPeriodStatistics statistics = new RatingPeriodStatistics();
+		listenedSystem.setListener(statistics);
+		
+		Rating[] players = createPopulation(100, listenedSystem);
+		RatingPeriodResults results = new RatingPeriodResults();
+		Random random = new Random(7);
+		int games = 0;
+		
+		for ( int i = 0; i < 1000; i++ ) {
+			int p1 = random.nextInt(players.length);
+			int p2 = random.nextInt(players.length);
+			if ( p1 != p2 ) {
+				results.addResult(players[p1], players[p2]);
+				games++;
+			}
+		}
+		
+		listenedSystem.updateRatings(results, pool);
+		
+		assertTrue( statistics.isComplete() );
+		assertEquals( 0, statistics.getRatingPeriod() );
+		assertEquals( players.length, statistics.getPlayersRated() );
+		assertEquals( games * 2, statistics.getResults() );
+		assertEquals( players.length, statistics.getPhasePlayers(RatingPeriodListener.Phase.CALCULATION) );
+		assertEquals( players.length, sum(statistics.getResultsPerPlayerHistogram()) );
+		assertEquals( players.length, sum(statistics.getRatingChangeHistogram()) );
+		assertEquals( listenedSystem.getSolverStatistics().getIterations(), weightedSum(statistics.getSolverIterationsHistogram()) );
+		assertEquals( 0, statistics.getUnconvergedPlayers().size() );
+		
+		// held to a single iteration, the solver fails to converge for some players, each of whom is reported
+		listenedSystem.setVolatilitySolver(new NewtonVolatilitySolver(0.000001, 1));
+		for ( int i = 0; i < 1000; i++ ) {
+			int p1 = random.nextInt(players.length);
+			int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+			results.addResult(players[p1], players[p2]);
+		}
+		listenedSystem.updateRatings(results, pool);
+		
+		assertTrue( statistics.getSolverFailures() > 0 );
+		assertEquals( statistics.getSolverFailures(), statistics.getUnconvergedPlayers().size() );
+	}
+
+	@Test
+	public void testAggregatedResults() {
+		Rating[] individual = createPopulation(3);
+		Rating[] aggregated = createPopulation(3);
+		RatingPeriodResults individualResults = new RatingPeriodResults();
+		RatingPeriodResults aggregatedResults = new RatingPeriodResults();
+		
+		for ( int i = 0; i < 40; i++ ) {
+			individualResults.addResult(individual[0], individual[1]);
+		}
+		for ( int i = 0; i < 3; i++ ) {
+			individualResults.addResult(individual[1], individual[0]);
+			individualResults.addDraw(individual[0], individual[2]);
+		}
+		individualResults.addResult(individual[2], individual[1]);
+		
+		aggregatedResults.addResults(aggregated[0], aggregated[1], 40, 3, 0);
+		aggregatedResults.addResults(aggregated[0], aggregated[2], 0, 0, 3);
+		aggregatedResults.addResult(aggregated[2], aggregated[1]);
+		
+		ratingSystem.updateRatings(individualResults);
+		ratingSystem.updateRatings(aggregatedResults);
+		
+		for ( int i = 0; i < individual.length; i++ ) {
+			assertEquals( individual[i].getRating(), aggregated[i].getRating(), 0.000001 );
+			assertEquals( individual[i].getRatingDeviation(), aggregated[i].getRatingDeviation(), 0.000001 );
+			assertEquals( individual[i].getVolatility(), aggregated[i].getVolatility(), 0.000000001 );
+			assertEquals( individual[i].getNumberOfResults(), aggregated[i].getNumberOfResults() );
+		}
+		assertEquals( 46, aggregated[0].getNumberOfResults() );
+		
+		// a series is won by whoever won more of its games, whichever order the players were given in
+		AggregatedResult series = new AggregatedResult(aggregated[0], aggregated[1], 1, 2, 0);
+		assertSame( aggregated[0], series.getPlayer1() );
+		assertSame( aggregated[1], series.getWinner() );
+		assertSame( aggregated[0], series.getLoser() );
+		try {
+			new AggregatedResult(aggregated[0], aggregated[2], 0, 0, 3).getWinner();
+			fail("A tied series has no winner");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRankedResults() {
+		Rating[] pairwise = createPopulation(8);
+		Rating[] ranked = createPopulation(8);
+		RatingPeriodResults pairwiseResults = new RatingPeriodResults();
+		RatingPeriodResults rankedResults = new RatingPeriodResults();
+		int[] places = { 0, 1, 2, 2, 4, 5, 6, 7 };  // players 2 and 3 share third place
+		
+		for ( int i = 0; i < pairwise.length; i++ ) {
+			for ( int j = i + 1; j < pairwise.length; j++ ) {
+				if ( places[i] == places[j] ) {
+					pairwiseResults.addDraw(pairwise[i], pairwise[j]);
+				} else {
+					pairwiseResults.addResult(pairwise[i], pairwise[j]);
+				}
+			}
+		}
+		rankedResults.addRankedResult(new RankedResult(ranked, places));
+		
+		ratingSystem.updateRatings(pairwiseResults);
+		ratingSystem.updateRatings(rankedResults);
+		
+		for ( int i = 0; i < pairwise.length; i++ ) {
+			assertEquals( pairwise[i].getRating(), ranked[i].getRating(), 0.000001 );
+			assertEquals( pairwise[i].getRatingDeviation(), ranked[i].getRatingDeviation(), 0.000001 );
+			assertEquals( pairwise[i].getVolatility(), ranked[i].getVolatility(), 0.000000001 );
+			assertEquals( pairwise.length - 1, ranked[i].getNumberOfResults() );
+		}
+	}
+
+	@Test
+	public void testRankIndex() {
+		RatingCalculator rankedSystem = new RatingCalculator(0.06, 0.5);
+		RatingRankIndex index = new RatingRankIndex(200);
+		rankedSystem.setRankIndex(index);
+		Rating[] players = createPopulation(500, rankedSystem);
+		Random random = new Random(9);
+		
+		for ( int period = 0; period < 5; period++ ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			for ( int i = 0; i < 2000; i++ ) {
+				int p1 = random.nextInt(players.length);
+				int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+				results.addResult(players[p1], players[p2]);
+			}
+			if ( period % 2 == 0 ) {
+				rankedSystem.updateRatings(results);
+			} else {
+				rankedSystem.updateRatings(results, pool);
+			}
+		}
+		
+		// compare with a full sort of the players whose deviation is within the threshold
+		List<Rating> expected = new ArrayList<Rating>();
+		for ( Rating player : players ) {
+			if ( player.getRatingDeviation() <= 200 ) {
+				expected.add(player);
+			} else {
+				assertEquals( -1, index.getRank(player) );
+			}
+		}
+		Collections.sort(expected, new Comparator<Rating>() {
+			@Override
+			public int compare(Rating a, Rating b) {
+				return Double.compare(b.getRating(), a.getRating());
+			}
+		});
+		
+		assertEquals( expected.size(), index.size() );
+		assertEquals( expected.subList(0, 10), index.getTop(10) );
+		for ( int i = 0; i < expected.size(); i++ ) {
+			assertEquals( i + 1, index.getRank(expected.get(i)) );
+			assertTrue( expected.get(i) == index.getPlayerAt(i + 1) );
+			assertEquals( i, index.countAbove(expected.get(i).getRating()) );
+		}
+		assertEquals( 100.0, index.getPercentile(expected.get(0)), 0 );
+		assertEquals( 0.0, index.getPercentile(expected.get(expected.size() - 1)), 0 );
+	}
+
+	@Test
+	public void testRankIndexLazyInactivity() {
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		RatingRankIndex index = new RatingRankIndex(120);
+		lazySystem.setRankIndex(index);
+		Rating[] players = new Rating[200];
+		Set<Rating> rated = new HashSet<Rating>();
+		Random random = new Random(17);
+		
+		// volatile players, so that the deviation of those who stop competing soon passes the threshold
+		for ( int i = 0; i < players.length; i++ ) {
+			players[i] = new Rating("player" + i, lazySystem, 1500 + random.nextGaussian() * 300, 100, 0.2);
+		}
+		
+		for ( int period = 0; period < 30; period++ ) {
+			// after the first few periods, only the first half of the players carry on competing
+			int active = period < 4 ? players.length : players.length / 2;
+			RatingPeriodResults results = new RatingPeriodResults();
+			for ( int i = 0; i < active * 5; i++ ) {
+				int p1 = random.nextInt(active);
+				int p2 = ( p1 + 1 + random.nextInt(active - 1) ) % active;
+				results.addResult(players[p1], players[p2]);
+				rated.add(players[p1]);
+				rated.add(players[p2]);
+			}
+			if ( period % 2 == 0 ) {
+				lazySystem.updateRatings(results);
+			} else {
+				lazySystem.updateRatings(results, pool);
+			}
+			
+			// the threshold is applied to the current deviation, including the periods missed by those who stopped
+			int ranked = 0;
+			for ( Rating player : players ) {
+				boolean eligible = rated.contains(player) && lazySystem.getCurrentRatingDeviation(player) <= 120;
+				assertEquals( eligible, index.contains(player) );
+				ranked += eligible ? 1 : 0;
+			}
+			assertEquals( ranked, index.size() );
+		}
+		assertTrue( index.size() < players.length / 2 + 1 );
+	}
+
+	@Test
+	public void testSnapshots() {
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		Rating[] players = createPopulation(50, lazySystem);
+		Random random = new Random(13);
+		
+		for ( int period = 0; period < 3; period++ ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			for ( int i = 0; i < 40; i++ ) {
+				int p1 = random.nextInt(players.length);
+				int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+				results.addResult(players[p1], players[p2]);
+			}
+			
+			RatingSnapshot before = lazySystem.getSnapshot();
+			double[] ratings = new double[players.length];
+			double[] deviations = new double[players.length];
+			for ( int i = 0; i < players.length; i++ ) {
+				ratings[i] = players[i].getRating();
+				deviations[i] = players[i].getRatingDeviation();
+			}
+			
+			lazySystem.updateRatings(results);
+			
+			// the old snapshot still sees the values from before the update, including the deviations of
+			// players whose inactivity has just been applied
+			RatingSnapshot after = lazySystem.getSnapshot();
+			assertEquals( period + 1, after.getRatingPeriod() );
+			for ( int i = 0; i < players.length; i++ ) {
+				assertEquals( ratings[i], before.getRating(players[i]), 0 );
+				assertEquals( deviations[i], before.getRatingDeviation(players[i]), 0 );
+				assertEquals( players[i].getRating(), after.getRating(players[i]), 0 );
+				assertEquals( players[i].getRatingDeviation(), after.getRatingDeviation(players[i]), 0 );
+			}
+		}
+		
+		RatingSnapshot expired = new RatingSnapshot(0);
+		try {
+			for ( Rating player : players ) {
+				expired.get(player);
+			}
+			fail("Snapshot of the first rating period should have expired");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		
+		// a player created after a snapshot is not in it, which is not the same as the snapshot having expired
+		RatingSnapshot current = lazySystem.getSnapshot();
+		Rating newcomer = new Rating("newcomer", lazySystem);
+		assertEquals( newcomer.getRating(), current.getRating(newcomer), 0 );
+		RatingSnapshot earlier = new RatingSnapshot(lazySystem.getRatingPeriod() - 1);
+		assertNull( earlier.get(newcomer) );
+		try {
+			earlier.getRating(newcomer);
+			fail("The newcomer was not in the earlier snapshot");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testProvisionalRatings() {
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		Rating[] players = createPopulation(30, lazySystem);
+		Random random = new Random(17);
+		
+		for ( int period = 0; period < 3; period++ ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			
+			// ask for provisional ratings as the results come in, so that later estimates build on cached workings
+			for ( int batch = 0; batch < 4; batch++ ) {
+				for ( int i = 0; i < 10; i++ ) {
+					int p1 = random.nextInt(players.length);
+					int p2 = ( p1 + 1 + random.nextInt(players.length - 1) ) % players.length;
+					if ( i == 0 ) {
+						results.addResults(players[p1], players[p2], 2, 1, 1);
+					} else if ( i == 1 ) {
+						results.addRankedResult(players[p1], players[p2], players[( p2 + 1 ) % players.length]);
+					} else {
+						results.addResult(players[p1], players[p2]);
+					}
+				}
+				for ( int i = 0; i < players.length; i += 3 ) {
+					lazySystem.getProvisionalRating(players[i], results);
+				}
+			}
+			
+			RatingState[] provisional = new RatingState[players.length];
+			for ( int i = 0; i < players.length; i++ ) {
+				provisional[i] = lazySystem.getProvisionalRating(players[i], results);
+				assertSame( provisional[i], lazySystem.getProvisionalRating(players[i], results) );
+			}
+			Set<Rating> competed = new HashSet<Rating>(results.getPlayersWithResults());
+			
+			lazySystem.updateRatings(results);
+			
+			for ( int i = 0; i < players.length; i++ ) {
+				if ( ! competed.contains(players[i]) ) {
+					continue;
+				}
+				assertEquals( players[i].getRating(), provisional[i].getRating(), 0.0000001 );
+				assertEquals( players[i].getRatingDeviation(), provisional[i].getRatingDeviation(), 0.0000001 );
+				assertEquals( players[i].getVolatility(), provisional[i].getVolatility(), 0.0000001 );
+				assertEquals( players[i].getNumberOfResults(), provisional[i].getNumberOfResults() );
+			}
+		}
+	}
+
+	@Test
+	public void testRatingHistory() {
+		Random random = new Random(23);
+		int numberOfPlayers = 60;
+		int numberOfPeriods = 6;
+		List<List<int[]>> archive = new ArrayList<List<int[]>>();
+		
+		for ( int period = 0; period < numberOfPeriods; period++ ) {
+			List<int[]> games = new ArrayList<int[]>();
+			for ( int i = 0; i < 12; i++ ) {
+				int p1 = random.nextInt(numberOfPlayers);
+				int p2 = ( p1 + 1 + random.nextInt(numberOfPlayers - 1) ) % numberOfPlayers;
+				games.add(new int[] { p1, p2, random.nextInt(4) == 0 ? 1 : 0 });
+			}
+			archive.add(games);
+		}
+		
+		RatingCalculator lazySystem = new RatingCalculator(0.06, 0.5);
+		lazySystem.setLazyInactivity(true);
+		Rating[] players = createPopulation(numberOfPlayers, lazySystem);
+		RatingHistory history = new RatingHistory(lazySystem);
+		int recorded = 0;
+		for ( List<int[]> games : archive ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			addGames(results, players, games);
+			recorded += results.getPlayersWithResults().size();
+			history.updateRatings(results);
+		}
+		
+		// a result arrives late for the second rating period, and one in the fourth is voided
+		int[] late = new int[] { 5, 9, 0 };
+		int[] voided = archive.get(3).get(4);
+		int recalculated = history.addResult(1, new Result(players[late[0]], players[late[1]]));
+		recalculated += history.voidResult(3, voided[2] == 1
+				? new Result(players[voided[0]], players[voided[1]], true)
+				: new Result(players[voided[0]], players[voided[1]]));
+		archive.get(1).add(late);
+		archive.get(3).remove(4);
+		assertTrue( recalculated > 0 );
+		assertTrue( recalculated < recorded );
+		
+		// the corrected ratings are exactly those from re-rating the corrected archive in full
+		RatingCalculator fullSystem = new RatingCalculator(0.06, 0.5);
+		fullSystem.setLazyInactivity(true);
+		Rating[] expected = createPopulation(numberOfPlayers, fullSystem);
+		for ( List<int[]> games : archive ) {
+			RatingPeriodResults results = new RatingPeriodResults();
+			addGames(results, expected, games);
+			fullSystem.updateRatings(results);
+		}
+		
+		for ( int i = 0; i < numberOfPlayers; i++ ) {
+			assertEquals( expected[i].getRating(), players[i].getRating(), 0 );
+			assertEquals( expected[i].getRatingDeviation(), players[i].getRatingDeviation(), 0 );
+			assertEquals( expected[i].getVolatility(), players[i].getVolatility(), 0 );
+			assertEquals( expected[i].getNumberOfResults(), players[i].getNumberOfResults() );
+			assertEquals( expected[i].getLastRatedPeriod(), players[i].getLastRatedPeriod() );
+		}
+	}
+	
+	@Test
+	public void testRatingScenarios() throws Exception {
+		final RatingCalculator system = new RatingCalculator(0.06, 0.5);
+		final Rating[] players = createPopulation(50, system);
+		final RatingCalculator copySystem = new RatingCalculator(0.06, 0.5);
+		Rating[] before = createPopulation(50, copySystem);
+		
+		// run the same hypothetical tournaments sequentially against real copies, and in parallel as scenarios
+		int scenarios = 16;
+		List<Rating[]> expected = new ArrayList<Rating[]>();
+		for ( int s = 0; s < scenarios; s++ ) {
+			RatingCalculator expectedSystem = new RatingCalculator(0.06, 0.5);
+			Rating[] copies = createPopulation(50, expectedSystem);
+			for ( List<int[]> games : createTournament(s, players.length) ) {
+				RatingPeriodResults results = new RatingPeriodResults();
+				addGames(results, copies, games);
+				expectedSystem.updateRatings(results);
+			}
+			expected.add(copies);
+		}
+		
+		List<Future<RatingScenario>> futures = new ArrayList<Future<RatingScenario>>();
+		for ( int s = 0; s < scenarios; s++ ) {
+			final int seed = s;
+			futures.add(pool.submit(new Callable<RatingScenario>() {
+				@Override
+				public RatingScenario call() {
+					RatingScenario scenario = new RatingScenario(system);
+					for ( List<int[]> games : createTournament(seed, players.length) ) {
+						RatingPeriodResults results = new RatingPeriodResults();
+						addGames(results, players, games);
+						scenario.updateRatings(results);
+					}
+					return scenario;
+				}
+			}));
+		}
+		
+		for ( int s = 0; s < scenarios; s++ ) {
+			RatingScenario scenario = futures.get(s).get();
+			assertEquals( 2, scenario.getRatingPeriod() );
+			assertTrue( scenario.getNumberOfCopies() < players.length );
+			for ( int i = 0; i < players.length; i++ ) {
+				RatingState state = scenario.getState(players[i]);
+				assertEquals( expected.get(s)[i].getRating(), state.getRating(), 0 );
+				assertEquals( expected.get(s)[i].getRatingDeviation(), state.getRatingDeviation(), 0 );
+				assertEquals( expected.get(s)[i].getVolatility(), state.getVolatility(), 0 );
+				assertEquals( expected.get(s)[i].getNumberOfResults(), state.getNumberOfResults() );
+			}
+		}
+		
+		// the real ratings are untouched
+		assertEquals( 0, system.getRatingPeriod() );
+		for ( int i = 0; i < players.length; i++ ) {
+			assertEquals( before[i].getRating(), players[i].getRating(), 0 );
+			assertEquals( before[i].getRatingDeviation(), players[i].getRatingDeviation(), 0 );
+			assertEquals( 0, players[i].getNumberOfResults() );
+		}
+	}
+	
+	@Test
+	public void testEagerRatingScenario() {
+		RatingCalculator system = new RatingCalculator(0.06, 0.5);
+		Rating[] players = createPopulation(200, system);
+		RatingCalculator expectedSystem = new RatingCalculator(0.06, 0.5);
+		Rating[] expected = createPopulation(200, expectedSystem);
+		RatingScenario scenario = new RatingScenario(system);
+		Random random = new Random(11);
+		
+		// every player is a participant in every round, but only a few of them have results in each
+		for ( int round = 0; round < 3; round++ ) {
+			int first = round == 1 ? 5 : 0;
+			RatingPeriodResults results = new RatingPeriodResults(new HashSet<Rating>(Arrays.asList(players)));
+			RatingPeriodResults expectedResults = new RatingPeriodResults(new HashSet<Rating>(Arrays.asList(expected)));
+			for ( int i = 0; i < 20; i++ ) {
+				int p1 = first + random.nextInt(10);
+				int p2 = first + ( p1 - first + 1 + random.nextInt(9) ) % 10;
+				results.addResult(players[p1], players[p2]);
+				expectedResults.addResult(expected[p1], expected[p2]);
+			}
+			scenario.updateRatings(results);
+			expectedSystem.updateRatings(expectedResults);
+		}
+		
+		// only the players with results are copied, and the idle participants' deviations still increase
+		assertEquals( 15, scenario.getNumberOfCopies() );
+		for ( int i = 0; i < players.length; i++ ) {
+			RatingState state = scenario.getState(players[i]);
+			assertEquals( expected[i].getRating(), state.getRating(), 0 );
+			assertEquals( expected[i].getRatingDeviation(), state.getRatingDeviation(), 0 );
+			assertEquals( expected[i].getRatingDeviation(), scenario.getCurrentRatingDeviation(players[i]), 0 );
+			assertEquals( expected[i].getVolatility(), state.getVolatility(), 0 );
+			assertEquals( expected[i].getNumberOfResults(), state.getNumberOfResults() );
+		}
+		assertTrue( scenario.getState(players[199]).getRatingDeviation() > players[199].getRatingDeviation() );
+	}
+	
+	private static List<List<int[]>> createTournament(int seed, int numberOfPlayers) {
+		Random random = new Random(seed);
+		List<List<int[]>> rounds = new ArrayList<List<int[]>>();
+		
+		for ( int round = 0; round < 2; round++ ) {
+			List<int[]> games = new ArrayList<int[]>();
+			for ( int i = 0; i < 8; i++ ) {
+				int p1 = random.nextInt(numberOfPlayers / 2);
+				int p2 = ( p1 + 1 + random.nextInt(numberOfPlayers / 2 - 1) ) % ( numberOfPlayers / 2 );
+				games.add(new int[] { p1, p2, random.nextInt(5) == 0 ? 1 : 0 });
+			}
+			rounds.add(games);
+		}
+		
+		return rounds;
+	}
+	
+	private static void addGames(RatingPeriodResults results, Rating[] players, List<int[]> games) {
+		for ( int[] game : games ) {
+			if ( game[2] == 1 ) {
+				results.addDraw(players[game[0]], players[game[1]]);
+			} else {
+				results.addResult(players[game[0]], players[game[1]]);
+			}
+		}
+	}
+
+	private static long sum(long[] histogram) {
+		long total = 0;
+		for ( long count : histogram ) {
+			total += count;
+		}
+		return total;
+	}
+
+	private static long weightedSum(long[] histogram) {
+		long total = 0;
+		for ( int i = 0; i < histogram.length; i++ ) {
+			total += i * histogram[i];
+		}
+		return total;
+	}
+
+	private Rating[] createPopulation(int size) {
+		return createPopulation(size, ratingSystem);
+	}
+	
+	private Rating[] createPopulation(int size, RatingCalculator ratingSystem) {
+		Random random = new Random(7);
+		Rating[] players = new Rating[size];
+		
+		for ( int i = 0; i < size; i++ ) {
+			players[i] = new Rating("player" + i, ratingSystem,
+					1500 + random.nextGaussian() * 300, 50 + random.nextDouble() * 300, 0.06);
+		}
+		
+		return players;
+	}
+	
 	private void initialise() {
 		player1.setRating(1500);
 		player2.setRating(1400);
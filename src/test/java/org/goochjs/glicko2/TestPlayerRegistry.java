@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+/**
+ * Registers enough players to make the registry grow several times, and checks that every uid keeps its id.
+ *
+ * @author Jeremy Gooch
+ */
+public class TestPlayerRegistry {
+
+	private static final int PLAYERS = 200000;
+
+	@Test
+	public void testRegistry() {
+		PlayerRegistry registry = new PlayerRegistry();
+
+		for ( int i = 0; i < PLAYERS; i++ ) {
+			assertEquals( i, registry.register("player" + i) );
+		}
+		assertEquals( 7, registry.register("player7") );
+		assertEquals( PLAYERS, registry.register("j\u00e9r\u00e9my") );  // non-ASCII uids are held as UTF-8
+		assertEquals( PLAYERS + 1, registry.size() );
+
+		for ( int i = 0; i < PLAYERS; i += 997 ) {
+			assertEquals( i, registry.getId("player" + i) );
+			assertEquals( "player" + i, registry.getUid(i) );
+		}
+		assertEquals( "j\u00e9r\u00e9my", registry.getUid(PLAYERS) );
+		assertEquals( -1, registry.getId("nobody") );
+
+		byte[] buffer = "..player42..".getBytes(Charset.forName("UTF-8"));
+		assertEquals( 42, registry.getId(buffer, 2, 8) );
+
+		RatingCalculator ratingSystem = new RatingCalculator(0.06, 0.5);
+		ColumnarRatings ratings = new ColumnarRatings();
+		registry.addPlayers(ratings, ratingSystem);
+		assertEquals( registry.size(), ratings.size() );
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Crashes a rating system part way through a rating period and checks that recovery from
+ * its checkpoint and result log gives the same ratings as a system that kept running.
+ *
+ * @author Jeremy Gooch
+ */
+public class TestResultLog {
+
+	@Test
+	public void testRecovery() throws IOException {
+		File checkpoint = File.createTempFile("glicko2", ".checkpoint");
+		File log = File.createTempFile("glicko2", ".log");
+		checkpoint.delete();
+		log.delete();
+
+		try {
+			RatingCalculator reference = new RatingCalculator(0.06, 0.5);
+			RatingCalculator crashed = new RatingCalculator(0.06, 0.5);
+			Rating[] referencePlayers = createPlayers(reference);
+			Rating[] crashedPlayers = createPlayers(crashed);
+			RatingPeriodResults referenceResults = new RatingPeriodResults();
+			RatingPeriodResults crashedResults = new RatingPeriodResults();
+			ResultLog resultLog = new ResultLog(log.getPath());
+			Random random = new Random(3);
+
+			for ( int period = 0; period < 4; period++ ) {
+				for ( int i = 0; i < 200; i++ ) {
+					int p1 = random.nextInt(referencePlayers.length);
+					int p2 = ( p1 + 1 + random.nextInt(referencePlayers.length - 1) ) % referencePlayers.length;
+					if ( i % 10 == 0 ) {
+						referenceResults.addDraw(referencePlayers[p1], referencePlayers[p2]);
+						crashedResults.addDraw(crashedPlayers[p1], crashedPlayers[p2]);
+						resultLog.addDraw(crashedPlayers[p1], crashedPlayers[p2]);
+					} else {
+						referenceResults.addResult(referencePlayers[p1], referencePlayers[p2]);
+						crashedResults.addResult(crashedPlayers[p1], crashedPlayers[p2]);
+						resultLog.addResult(crashedPlayers[p1], crashedPlayers[p2]);
+					}
+				}
+				referenceResults.addRankedResult(referencePlayers[0], referencePlayers[1], referencePlayers[2]);
+				crashedResults.addRankedResult(crashedPlayers[0], crashedPlayers[1], crashedPlayers[2]);
+				resultLog.addRankedResult(new RankedResult(crashedPlayers[0], crashedPlayers[1], crashedPlayers[2]));
+
+				if ( period == 3 ) {
+					break;  // the last period is still open when the system crashes
+				}
+
+				reference.updateRatings(referenceResults);
+				resultLog.closePeriod(crashed.getRatingPeriod());
+				if ( period < 2 ) {
+					crashed.updateRatings(crashedResults);
+				}
+				if ( period == 0 ) {
+					// the log lets go of the Ratings it has seen once they are checkpointed
+					assertEquals( crashedPlayers.length, resultLog.getNumberOfCachedPlayers() );
+					RatingCheckpoint.write(checkpoint.getPath(), crashed, Arrays.asList(crashedPlayers), resultLog);
+					assertEquals( 0, resultLog.getNumberOfCachedPlayers() );
+				}
+			}
+			resultLog.close();
+
+			// a record that was only partly written when the process died
+			FileOutputStream torn = new FileOutputStream(log, true);
+			torn.write(new byte[] { 2, 0, 0 });
+			torn.close();
+
+			RatingCalculator recovered = new RatingCalculator(0.06, 0.5);
+			Map<String, Rating> players = new HashMap<String, Rating>();
+			RatingPeriodResults recoveredResults = RatingCheckpoint.recover(checkpoint.getPath(), log.getPath(), recovered, players);
+
+			assertEquals( reference.getRatingPeriod(), recovered.getRatingPeriod() );
+			for ( Rating expected : referencePlayers ) {
+				Rating actual = players.get(expected.getUid());
+				assertEquals( expected.getRating(), actual.getRating(), 0 );
+				assertEquals( expected.getRatingDeviation(), actual.getRatingDeviation(), 0 );
+				assertEquals( expected.getVolatility(), actual.getVolatility(), 0 );
+				assertEquals( expected.getNumberOfResults(), actual.getNumberOfResults() );
+				assertEquals( referenceResults.getResults(expected).size(), recoveredResults.getResults(actual).size() );
+			}
+
+			// the torn record is cut off when the log is reopened, and new records follow on from it
+			resultLog = new ResultLog(log.getPath());
+			assertEquals( 2, resultLog.getLastClosedPeriod() );
+			long openPeriodOffset = resultLog.getOpenPeriodOffset();
+			resultLog.addResult(players.get("player0"), players.get("player1"));
+			resultLog.close();
+			RatingPeriodResults replayed = new RatingPeriodResults();
+			ResultLog.replay(log.getPath(), recovered, players, replayed, openPeriodOffset);
+			assertEquals( recoveredResults.getResults(players.get("player0")).size() + 1,
+					replayed.getResults(players.get("player0")).size() );
+			
+			// an offset which does not fall between two records is refused
+			try {
+				ResultLog.replay(log.getPath(), recovered, players, new RatingPeriodResults(), openPeriodOffset - 1);
+				fail("Replay started part way through a record");
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			checkpoint.delete();
+			log.delete();
+		}
+	}
+
+	@Test
+	public void testCheckpointExact() throws IOException {
+		File checkpoint = File.createTempFile("glicko2", ".checkpoint");
+
+		try {
+			RatingCalculator ratingSystem = new RatingCalculator(0.06, 0.5);
+			ratingSystem.setLazyInactivity(true);
+			Rating[] players = new Rating[2000];
+			Random random = new Random(5);
+			for ( int i = 0; i < players.length; i++ ) {
+				players[i] = new Rating("player" + i, ratingSystem,
+						1500 + random.nextGaussian() * 300, 30 + random.nextDouble() * 320, 0.03 + random.nextDouble() * 0.06);
+			}
+			for ( int period = 0; period < 2; period++ ) {
+				RatingPeriodResults results = new RatingPeriodResults();
+				for ( int i = 0; i < 5000; i++ ) {
+					int p1 = random.nextInt(players.length / 2);
+					int p2 = ( p1 + 1 + random.nextInt(players.length / 2 - 1) ) % ( players.length / 2 );
+					results.addResult(players[p1], players[p2]);
+				}
+				ratingSystem.updateRatings(results);
+			}
+			RatingCheckpoint.write(checkpoint.getPath(), ratingSystem, Arrays.asList(players));
+
+			// the players are read back bit for bit, without any rating period being replayed on top of them
+			RatingCalculator recovered = new RatingCalculator(0.06, 0.5);
+			recovered.setLazyInactivity(true);
+			Map<String, Rating> read = RatingCheckpoint.read(checkpoint.getPath(), recovered);
+			assertEquals( ratingSystem.getRatingPeriod(), recovered.getRatingPeriod() );
+			assertEquals( players.length, read.size() );
+			for ( Rating expected : players ) {
+				Rating actual = read.get(expected.getUid());
+				assertEquals( Double.doubleToRawLongBits(expected.getRating()), Double.doubleToRawLongBits(actual.getRating()) );
+				assertEquals( Double.doubleToRawLongBits(expected.getRatingDeviation()), Double.doubleToRawLongBits(actual.getRatingDeviation()) );
+				assertEquals( Double.doubleToRawLongBits(expected.getVolatility()), Double.doubleToRawLongBits(actual.getVolatility()) );
+				assertEquals( expected.getNumberOfResults(), actual.getNumberOfResults() );
+				assertEquals( expected.getLastRatedPeriod(), actual.getLastRatedPeriod() );
+			}
+		} finally {
+			checkpoint.delete();
+		}
+	}
+
+	/**
+	 * Releases the log's players and checks that they keep their ids when they are logged again, even through
+	 * different Rating objects, rather than being defined a second time.
+	 */
+	@Test
+	public void testReleasePlayers() throws IOException {
+		File log = File.createTempFile("glicko2", ".log");
+		log.delete();
+
+		try {
+			RatingCalculator ratingSystem = new RatingCalculator(0.06, 0.5);
+			Rating[] players = createPlayers(ratingSystem);
+			ResultLog resultLog = new ResultLog(log.getPath());
+			resultLog.addResult(players[0], players[1]);
+			resultLog.flush();
+			long length = log.length();
+
+			resultLog.releasePlayers();
+			assertEquals( 0, resultLog.getNumberOfCachedPlayers() );
+			resultLog.addResult(new Rating("player0", ratingSystem), new Rating("player1", ratingSystem));
+			resultLog.flush();
+			assertEquals( length + 9, log.length() );  // a result record, and no player definitions
+			assertEquals( 2, resultLog.getNumberOfCachedPlayers() );
+			resultLog.close();
+
+			RatingPeriodResults replayed = new RatingPeriodResults();
+			Map<String, Rating> replayedPlayers = new HashMap<String, Rating>();
+			ResultLog.replay(log.getPath(), ratingSystem, replayedPlayers, replayed, 0);
+			assertEquals( 2, replayedPlayers.size() );
+			assertEquals( 2, replayed.getResults(replayedPlayers.get("player0")).size() );
+		} finally {
+			log.delete();
+		}
+	}
+
+	private Rating[] createPlayers(RatingCalculator ratingSystem) {
+		Rating[] players = new Rating[50];
+		for ( int i = 0; i < players.length; i++ ) {
+			players[i] = new Rating("player" + i, ratingSystem);
+		}
+		return players;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013 Jeremy Gooch <http://www.linkedin.com/in/jeremygooch/>
+ *
+ * The licence covering the contents of this file is described in the file LICENCE.txt,
+ * which should have been included as part of the distribution containing this file.
+ */
+package org.goochjs.glicko2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the volatility solvers agree with each other and with Glickman's example.
+ *
+ * @author Jeremy Gooch
+ */
+public class TestVolatilitySolver {
+
+	@Test
+	public void testGlickmanExample() {
+		// the values of phi, delta and v for player1 in Glickman's example
+		SolverStatistics statistics = new SolverStatistics();
+
+		assertEquals( 0.05999, new IllinoisVolatilitySolver().solve(1.1513, 0.06, -0.4834, 1.7785, 0.5, statistics), 0.00001 );
+		assertEquals( 0.05999, new NewtonVolatilitySolver().solve(1.1513, 0.06, -0.4834, 1.7785, 0.5, statistics), 0.00001 );
+		assertEquals( 2, statistics.getSolves() );
+		assertEquals( 0, statistics.getFailures() );
+	}
+
+	@Test
+	public void testSolversAgree() {
+		Random random = new Random(9);
+		VolatilitySolver illinois = new IllinoisVolatilitySolver();
+		VolatilitySolver newton = new NewtonVolatilitySolver();
+		SolverStatistics illinoisStatistics = new SolverStatistics();
+		SolverStatistics newtonStatistics = new SolverStatistics();
+
+		for ( int i = 0; i < 10000; i++ ) {
+			double phi = 0.1 + random.nextDouble() * 2;
+			double sigma = 0.02 + random.nextDouble() * 0.1;
+			double v = 0.1 + random.nextDouble() * 10;
+			double delta = random.nextGaussian() * v;
+			double tau = 0.3 + random.nextDouble();
+
+			assertEquals(
+					illinois.solve(phi, sigma, delta, v, tau, illinoisStatistics),
+					newton.solve(phi, sigma, delta, v, tau, newtonStatistics),
+					0.0000001 );
+		}
+
+		assertEquals( 0, illinoisStatistics.getFailures() );
+		assertEquals( 0, newtonStatistics.getFailures() );
+		assertTrue( newtonStatistics.getMeanIterations() < illinoisStatistics.getMeanIterations() );
+	}
+
+	@Test
+	public void testIterationLimit() {
+		SolverStatistics statistics = new SolverStatistics();
+
+		new NewtonVolatilitySolver(0.000001, 1).solve(1.1513, 0.06, -0.4834, 1.7785, 0.5, statistics);
+
+		assertEquals( 1, statistics.getLastIterations() );
+		assertEquals( false, statistics.isLastConverged() );
+		assertEquals( 1, statistics.getFailures() );
+		
+		// combining statistics carries the last solve over from the instance added
+		SolverStatistics combined = new SolverStatistics();
+		new NewtonVolatilitySolver().solve(1.1513, 0.06, -0.4834, 1.7785, 0.5, combined);
+		combined.add(statistics);
+		assertEquals( 1, combined.getLastIterations() );
+		assertEquals( false, combined.isLastConverged() );
+		assertEquals( 1, combined.getFailures() );
+	}
+}